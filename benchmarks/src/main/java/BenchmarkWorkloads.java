@@ -0,0 +1,245 @@
+import benchmarks.Workload;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * BenchmarkWorkloads sets up the game's hot paths for the JMH benchmarks in the benchmarks package. It lives
+ * in the unnamed package next to the game so it can call the package-private per-phase methods of GameWorld.
+ * Worlds grow with the number of enemies so the crowding stays about the same at every size.
+ */
+public class BenchmarkWorkloads {
+    static final int TILE_SIZE = 60; // Same as GamePanel
+    static final int SCREEN_SIZE = 20 * TILE_SIZE;
+    private static final int TILES_PER_ENEMY = 8; // Open map area per enemy
+    private static final int MIN_TILES = 40;
+    private static final int BOSSES = 8;
+    private static final long SEED = 1;
+
+    /**
+     * Creates an open world large enough for the given number of enemies, with the flow field built.
+     */
+    static GameWorld createWorld(int enemies) {
+        int tiles = Math.max(MIN_TILES, (int) Math.sqrt((double) enemies * TILES_PER_ENEMY));
+        GameWorld world = new GameWorld(new TickClock(60), SEED, TILE_SIZE, tiles, tiles);
+        world.step(1); // Routes the flow field to the player; the clock is far from the next spawn
+        return world;
+    }
+
+    /**
+     * handleEnemyMovement with the "sequential", "parallel" or "fastSteering" update.
+     */
+    public static class EnemyMovement implements Workload {
+        private GameWorld world;
+        private int[] startX;
+        private int[] startY;
+
+        @Override
+        public void setUp(int size, String variant) {
+            world = createWorld(size);
+            world.spawnWave(size);
+            switch (variant) {
+                case "sequential":
+                    break;
+                case "parallel":
+                    world.setParallelEnemyUpdate(true);
+                    break;
+                case "fastSteering":
+                    world.setFastSteering(true);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown enemy update " + variant);
+            }
+            startX = Arrays.copyOf(world.enemies.x, world.enemies.size);
+            startY = Arrays.copyOf(world.enemies.y, world.enemies.size);
+        }
+
+        @Override
+        public int run() {
+            world.handleEnemyMovement();
+            if (world.gameOver) {
+                // Caught the player: start over from the spawned formation
+                for (int i = 0; i < startX.length; i++) {
+                    world.placeEnemy(i, startX[i], startY[i]);
+                }
+                world.gameOver = false;
+            }
+            return world.enemies.x[0];
+        }
+    }
+
+    /**
+     * handleBossMovement for a few bosses pushing through the enemies.
+     */
+    public static class BossMovement implements Workload {
+        private GameWorld world;
+        private int[] startX;
+        private int[] startY;
+
+        @Override
+        public void setUp(int size, String variant) {
+            world = createWorld(size);
+            world.spawnWave(size);
+            for (int i = 0; i < BOSSES; i++) {
+                world.spawnBossEnemy();
+            }
+            startX = Arrays.copyOf(world.bosses.x, world.bosses.size);
+            startY = Arrays.copyOf(world.bosses.y, world.bosses.size);
+        }
+
+        @Override
+        public int run() {
+            world.handleBossMovement();
+            if (world.gameOver) {
+                for (int i = 0; i < startX.length; i++) {
+                    world.placeBoss(i, startX[i], startY[i]);
+                }
+                world.gameOver = false;
+            }
+            return world.bosses.x[0];
+        }
+    }
+
+    /**
+     * Spawning: "enemy" adds one enemy to a world holding size enemies, "boss" one boss, and "wave" places a
+     * whole wave of size enemies on an empty world.
+     */
+    public static class Spawn implements Workload {
+        private GameWorld world;
+        private String variant;
+        private int size;
+
+        @Override
+        public void setUp(int size, String variant) {
+            if (!variant.equals("enemy") && !variant.equals("boss") && !variant.equals("wave")) {
+                throw new IllegalArgumentException("Unknown spawn " + variant);
+            }
+            this.variant = variant;
+            this.size = size;
+            world = createWorld(size);
+            if (!variant.equals("wave")) {
+                world.spawnWave(size);
+            }
+        }
+
+        @Override
+        public int run() {
+            switch (variant) {
+                case "enemy":
+                    if (world.spawnNewEnemy()) {
+                        world.removeEnemy(world.enemies.size - 1); // Keep the world at its size
+                    }
+                    return world.enemies.size;
+                case "boss":
+                    world.spawnBossEnemy();
+                    int bosses = world.bosses.size;
+                    world.clearBosses();
+                    return bosses;
+                default:
+                    world.clearEnemies();
+                    world.spawnWave(size);
+                    return world.enemies.size;
+            }
+        }
+    }
+
+    /**
+     * SteeringKernel alone over all enemies of a world: the kernel SteeringKernel.create() picks, i.e. the
+     * vector kernel when the JVM runs with --add-modules jdk.incubator.vector -Dgame.vectorSteering=true.
+     */
+    public static class Steering implements Workload {
+        private static final double CIRCLE_RADIUS = 70; // As in GameWorld
+        private static final double SLOW_DOWN_FACTOR = 0.8;
+
+        private GameWorld world;
+        private SteeringKernel kernel;
+
+        @Override
+        public void setUp(int size, String variant) {
+            world = createWorld(size);
+            world.spawnWave(size);
+            kernel = SteeringKernel.create();
+        }
+
+        @Override
+        public int run() {
+            Player player = world.getPlayer();
+            kernel.steer(world.enemies, 0, world.enemies.size, player.getX(), player.getY(), CIRCLE_RADIUS,
+                    SLOW_DOWN_FACTOR);
+            return world.enemies.desiredX[0];
+        }
+    }
+
+    /**
+     * Player.move on a map of pillars, turning whenever a wall blocks the way.
+     */
+    public static class PlayerMove implements Workload {
+        private TileMap map;
+        private Player player;
+        private int xSpeed = 4;
+        private int ySpeed = 3;
+
+        @Override
+        public void setUp(int size, String variant) {
+            map = TileMap.withBorderWalls(MIN_TILES, MIN_TILES);
+            for (int row = 3; row < MIN_TILES - 1; row += 5) {
+                for (int col = 3; col < MIN_TILES - 1; col += 5) {
+                    map.setTile(col, row, 1);
+                }
+            }
+            player = new Player(TILE_SIZE, TILE_SIZE, 4, TILE_SIZE);
+        }
+
+        @Override
+        public int run() {
+            int x = player.getX();
+            int y = player.getY();
+            player.move(xSpeed, ySpeed, map);
+            if (player.getX() == x && player.getY() == y) {
+                int turned = -ySpeed;
+                ySpeed = xSpeed;
+                xSpeed = turned;
+            }
+            return player.getX() + player.getY();
+        }
+    }
+
+    /**
+     * A frame as GamePanel.paintComponent draws it, rendered into an offscreen image. Enemies are moved for a
+     * second first so the screen shows them gathering around the player.
+     */
+    public static class Render implements Workload {
+        private GameRenderer renderer;
+        private BufferedImage image;
+        private Graphics2D graphics;
+
+        @Override
+        public void setUp(int size, String variant) {
+            GameWorld world = createWorld(size);
+            world.spawnWave(size);
+            for (int i = 0; i < 60; i++) {
+                world.enemies.savePreviousPositions();
+                world.handleEnemyMovement();
+                world.gameOver = false;
+            }
+            Camera camera = new Camera(world.maxCol * TILE_SIZE, world.maxRow * TILE_SIZE, SCREEN_SIZE, SCREEN_SIZE);
+            camera.update(world.getPlayer().getX(), world.getPlayer().getY());
+            SnapshotBuffer snapshots = new SnapshotBuffer(world, camera);
+            renderer = new GameRenderer(snapshots, TILE_SIZE, SCREEN_SIZE, SCREEN_SIZE);
+            image = new BufferedImage(SCREEN_SIZE, SCREEN_SIZE, BufferedImage.TYPE_INT_RGB);
+            graphics = image.createGraphics();
+        }
+
+        @Override
+        public int run() {
+            renderer.render(graphics, 0.5);
+            return image.getRGB(SCREEN_SIZE / 2, SCREEN_SIZE / 2);
+        }
+
+        @Override
+        public void tearDown() {
+            graphics.dispose();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+/**
+ * Workload is one measured piece of the game. The game's classes live in the unnamed package, which code in a
+ * named package cannot refer to, while JMH only accepts benchmarks in a named package; so the workloads are
+ * implemented next to the game in BenchmarkWorkloads and the benchmarks reach them through this interface.
+ */
+public interface Workload {
+    /**
+     * Prepares the workload outside of the measurement.
+     *
+     * @param size    number of enemies in the world
+     * @param variant workload-specific mode, e.g. the enemy update strategy
+     */
+    void setUp(int size, String variant);
+
+    /**
+     * Runs one operation and returns a value that depends on its result, for the Blackhole.
+     */
+    int run();
+
+    /**
+     * Releases threads or other resources; the default does nothing.
+     */
+    default void tearDown() {
+    }
+
+    /**
+     * Creates the workload class BenchmarkWorkloads.name.
+     */
+    static Workload create(String name) {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkloads$" + name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unknown workload " + name, e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.Random;
+
+/**
+ * Checks SteeringKernel against GameWorld's exact Math-based steering, on enemies spread around a player at
+ * any angle and distance that move onto their computed positions round after round, so they close in on
+ * their targets. The approximate sine can move the truncated target by 1 px per axis, which turns a step of
+ * at most 3.2 px by less than 1 px while the enemy is more than NEAR_TARGET px away. So steps may differ
+ * by at most TOLERANCE pixels per axis there, and by at most a whole step in either direction closer in,
+ * where the step may point elsewhere. When the vector kernel is loaded
+ * (the vector module runs this test with --add-modules jdk.incubator.vector -Dgame.vectorSteering=true) it
+ * must match the scalar kernel bit for bit, angles and random streams included.
+ * Surefire runs the public test* methods as plain tests; a failure is an AssertionError.
+ */
+public class SteeringKernelTest {
+    static final int TOLERANCE = 1; // Pixels per axis
+    static final double NEAR_TARGET = 10; // Pixels; 2 * sqrt(2) * 3.2 px / distance < 1 px beyond it
+    private static final double CIRCLE_RADIUS = 70; // As in GameWorld
+    private static final double SLOW_DOWN_FACTOR = 0.8;
+    private static final int ROUNDS = 50;
+
+    public void testScalarKernelStaysWithinToleranceOfExactSteering() {
+        check(new SteeringKernel(), 100_000, 1);
+    }
+
+    public void testVectorKernelMatchesScalarKernel() {
+        SteeringKernel vector = SteeringKernel.create();
+        if (!vector.isVectorized()) {
+            if (Boolean.getBoolean("game.vectorSteering")) {
+                throw new AssertionError("The vector kernel was requested but could not be loaded");
+            }
+            return; // Only built with -Pvector
+        }
+        check(vector, 100_000, 2);
+        check(SteeringKernel.create(), 1003, 3); // Leaves a tail for the scalar kernel
+    }
+
+    /**
+     * Steers count random enemies with the kernel and the scalar kernel for ROUNDS rounds, failing if a
+     * scalar step is further from the exact one than allowed or the kernel's step differs from it.
+     */
+    private static void check(SteeringKernel kernel, int count, long seed) {
+        Random random = new Random(seed);
+        EntityStore store = new EntityStore(count);
+        for (int i = 0; i < count; i++) {
+            double angle = i % 4 == 0 ? (random.nextDouble() - 0.5) * 1e6 : random.nextDouble() * 2 * Math.PI;
+            store.add(random.nextInt(2001) - 1000, random.nextInt(2001) - 1000, 1 + random.nextInt(4), angle,
+                    EntityStore.KIND_ENEMY, random.nextLong());
+        }
+        EntityStore kernelStore = copy(store);
+
+        SteeringKernel scalar = new SteeringKernel();
+        long outside = 0;
+        long differing = 0;
+        long mismatches = 0;
+        int maxError = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int playerX = random.nextInt(201) - 100;
+            int playerY = random.nextInt(201) - 100;
+            scalar.steer(store, 0, count, playerX, playerY, CIRCLE_RADIUS, SLOW_DOWN_FACTOR);
+            kernel.steer(kernelStore, 0, count, playerX, playerY, CIRCLE_RADIUS, SLOW_DOWN_FACTOR);
+            for (int i = 0; i < count; i++) {
+                long exact = exactStep(store.x[i], store.y[i], store.speed[i], store.angle[i], playerX, playerY);
+                int error = Math.max(Math.abs(store.desiredX[i] - (int) (exact >> 32)),
+                        Math.abs(store.desiredY[i] - (int) exact));
+                maxError = Math.max(maxError, error);
+                if (error > 0) {
+                    differing++;
+                }
+                double distance = exactDistance(store.x[i], store.y[i], store.angle[i], playerX, playerY);
+                if (error > (distance > NEAR_TARGET ? TOLERANCE : 2 * store.speed[i] * SLOW_DOWN_FACTOR + 1)) {
+                    outside++;
+                }
+                if (!sameStep(store, kernelStore, i)) {
+                    mismatches++;
+                }
+                store.x[i] = store.desiredX[i];
+                store.y[i] = store.desiredY[i];
+                kernelStore.x[i] = kernelStore.desiredX[i];
+                kernelStore.y[i] = kernelStore.desiredY[i];
+            }
+        }
+
+        long steps = (long) count * ROUNDS;
+        System.out.printf("%s, %d steps: %d differ from the exact steering, at most by %d px; %d differ from the"
+                + " scalar kernel%n", kernel.getClass().getSimpleName(), steps, differing, maxError, mismatches);
+        if (outside > 0) {
+            throw new AssertionError(outside + " of " + steps + " steps are further from the exact steering than "
+                    + TOLERANCE + " px, or than a step near the target");
+        }
+        if (mismatches > 0) {
+            throw new AssertionError(mismatches + " of " + steps + " steps of " + kernel.getClass().getSimpleName()
+                    + " differ from the scalar kernel");
+        }
+    }
+
+    /**
+     * GameWorld's exact circling step for an enemy whose angle was already updated, packed as x << 32 | y.
+     */
+    static long exactStep(int enemyX, int enemyY, int speed, double angle, int playerX, int playerY) {
+        int targetX = (int) (playerX + CIRCLE_RADIUS * Math.cos(angle));
+        int targetY = (int) (playerY + CIRCLE_RADIUS * Math.sin(angle));
+        int deltaX = targetX - enemyX;
+        int deltaY = targetY - enemyY;
+        double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        if (distance <= 0) {
+            return (long) enemyX << 32 | enemyY & 0xFFFFFFFFL;
+        }
+        double moveX = (deltaX / distance) * speed * SLOW_DOWN_FACTOR;
+        double moveY = (deltaY / distance) * speed * SLOW_DOWN_FACTOR;
+        return (long) (int) (enemyX + moveX) << 32 | (int) (enemyY + moveY) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Distance from the enemy to its exact target on the circle.
+     */
+    static double exactDistance(int enemyX, int enemyY, double angle, int playerX, int playerY) {
+        int deltaX = (int) (playerX + CIRCLE_RADIUS * Math.cos(angle)) - enemyX;
+        int deltaY = (int) (playerY + CIRCLE_RADIUS * Math.sin(angle)) - enemyY;
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+
+    private static boolean sameStep(EntityStore a, EntityStore b, int i) {
+        return a.desiredX[i] == b.desiredX[i] && a.desiredY[i] == b.desiredY[i] && a.rng[i] == b.rng[i]
+                && Double.doubleToRawLongBits(a.angle[i]) == Double.doubleToRawLongBits(b.angle[i]);
+    }
+
+    private static EntityStore copy(EntityStore from) {
+        EntityStore to = new EntityStore(from.size());
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.x[i], from.y[i], from.speed[i], from.angle[i], from.kind[i], from.rng[i]);
+        }
+        return to;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * BitReader reads the values written by a BitWriter back from a byte array. Reading past the end returns
+ * zero bits and sets isOverrun(), so a truncated packet is detected instead of throwing mid-decode.
+ */
+public class BitReader {
+    private byte[] data;
+    private int position;
+    private int end;
+    private long bits;
+    private int bitCount;
+    private boolean overrun;
+
+    public void reset(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        bits = 0;
+        bitCount = 0;
+        overrun = false;
+    }
+
+    /**
+     * Reads a value of the given width (0 to 32 bits), zero-extended.
+     */
+    public int read(int width) {
+        if (width == 0) {
+            return 0;
+        }
+        while (bitCount < width) {
+            int next = 0;
+            if (position < end) {
+                next = data[position++] & 0xFF;
+            } else {
+                overrun = true;
+            }
+            bits = bits << 8 | next;
+            bitCount += 8;
+        }
+        bitCount -= width;
+        return (int) (bits >>> bitCount & (-1L >>> (64 - width)));
+    }
+
+    public boolean isOverrun() {
+        return overrun;
+    }
+}
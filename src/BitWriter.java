@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/**
+ * BitWriter packs values of any width from 0 to 32 bits into a growing byte array, most significant bit
+ * first. The array is reused after clear(), so packing does not allocate once it is large enough.
+ */
+public class BitWriter {
+    private byte[] data = new byte[256];
+    private int length; // Complete bytes in data
+    private long bits; // Pending bits, right-aligned
+    private int bitCount;
+
+    public void clear() {
+        length = 0;
+        bits = 0;
+        bitCount = 0;
+    }
+
+    /**
+     * Writes the lowest width bits of the value.
+     */
+    public void write(int value, int width) {
+        if (width == 0) {
+            return;
+        }
+        bits = bits << width | (value & 0xFFFFFFFFL) & (-1L >>> (64 - width));
+        bitCount += width;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = (byte) (bits >>> bitCount);
+        }
+    }
+
+    /**
+     * Pads the last byte with zero bits; call before reading the data.
+     */
+    public void flush() {
+        if (bitCount > 0) {
+            write(0, 8 - bitCount);
+        }
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Bytes written so far, after flush() including the padded last byte.
+     */
+    public int length() {
+        return length;
+    }
+}
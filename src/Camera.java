@@ -1,31 +1,54 @@
+/**
+ * Camera follows the player and stays within the world: it stops at the world's edges, and a world
+ * smaller than the screen is centred.
+ */
 public class Camera {
     private int x;
     private int y;
-    private final int mapWidth;
-    private final int mapHeight;
+    private int prevX; // Position at the previous tick, for interpolation
+    private int prevY;
+    private int worldWidth; // In pixels
+    private int worldHeight;
     private final int screenWidth;
     private final int screenHeight;
 
-    public Camera(int mapWidth, int mapHeight, int screenWidth, int screenHeight) {
-        this.mapWidth = mapWidth;
-        this.mapHeight = mapHeight;
+    public Camera(int worldWidth, int worldHeight, int screenWidth, int screenHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
         this.screenWidth = screenWidth;
         this.screenHeight = screenHeight;
         this.x = 0;
         this.y = 0;
     }
 
+    /**
+     * Changes the bounds, e.g. when the world switched to a level of another size.
+     */
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
     public void update(int playerX, int playerY) {
         int halfScreenWidth = screenWidth / 2;
         int halfScreenHeight = screenHeight / 2;
 
-        int newX = playerX - halfScreenWidth;
-        int newY = playerY - halfScreenHeight;
+        int newX = clamp(playerX - halfScreenWidth, worldWidth, screenWidth);
+        int newY = clamp(playerY - halfScreenHeight, worldHeight, screenHeight);
 
+        this.prevX = this.x;
+        this.prevY = this.y;
         this.x = newX;
         this.y = newY;
     }
 
+    private static int clamp(int position, int worldSize, int screenSize) {
+        if (worldSize <= screenSize) {
+            return (worldSize - screenSize) / 2;
+        }
+        return Math.max(0, Math.min(worldSize - screenSize, position));
+    }
+
     public int getX() {
         return x;
     }
@@ -33,4 +56,20 @@ public class Camera {
     public int getY() {
         return y;
     }
+
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    public int getPrevX() {
+        return prevX;
+    }
+
+    public int getPrevY() {
+        return prevY;
+    }
 }
@@ -0,0 +1,192 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+
+/**
+ * ClientPanel shows the game played on a GameServer. Every tick it sends the held buttons, which move the
+ * player if this client controls it, moves the GameClient's playback on and publishes it to the same
+ * GameRenderer the local game uses; the camera follows the interpolated player, and rendering interpolates
+ * between ticks as usual. Maps are built locally from the level files the server names, which therefore
+ * have to be present on the client too.
+ */
+public class ClientPanel extends JPanel implements Runnable {
+    final int maxScreenCol = 20; // Number of tiles horizontally
+    final int maxScreenRow = 20; // Number of tiles vertically
+    final int tileSize;
+    final int screenWidth;
+    final int screenHeight;
+    int FPS = Integer.getInteger("game.fps", 60); // Frames rendered per second
+
+    private final GameClient client;
+    private final LevelFile[] levels; // The server's level files, empty for the generated map
+    private final TileMap[] levelMaps; // Created when a level is first shown
+    private TileMap generatedMap;
+
+    KeyHandler keyH = new KeyHandler(); // Handles keyboard input
+    private final KeyAdapter perfKey = new KeyAdapter() { // F3 toggles the performance overlay
+        @Override
+        public void keyPressed(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_F3) {
+                stats.toggle();
+            }
+        }
+    };
+    Thread gameThread; // Thread to run the game loop
+    private GameLoop gameLoop;
+    private final InputState input = new InputState(); // Input of the current tick, game thread only
+
+    private final Camera camera;
+    private final SnapshotBuffer snapshots;
+    private final GameRenderer renderer;
+    private GameCanvas canvas; // Active rendering backend, null when painting through Swing
+    private volatile double renderAlpha;
+    private final PerfStats stats = new PerfStats();
+
+    /**
+     * @param client A client the server has welcomed
+     */
+    public ClientPanel(GameClient client) throws IOException {
+        this.client = client;
+        this.tileSize = client.getTileSize();
+        this.screenWidth = tileSize * maxScreenCol;
+        this.screenHeight = tileSize * maxScreenRow;
+        this.levels = client.getLevels().isEmpty() ? new LevelFile[0] : LevelFile.openAll(client.getLevels());
+        this.levelMaps = new TileMap[levels.length];
+
+        this.setPreferredSize(new Dimension(screenWidth, screenHeight));
+        this.setBackground(Color.white);
+        this.setDoubleBuffered(true);
+        this.addKeyListener(keyH);
+        this.addKeyListener(perfKey);
+        this.setFocusable(true);
+        stats.setEnabled(Boolean.getBoolean("game.perf"));
+
+        TileMap map = mapFor(levels.length > 0 ? 0 : -1);
+        camera = new Camera(map.getCols() * tileSize, map.getRows() * tileSize, screenWidth, screenHeight);
+        snapshots = new SnapshotBuffer(client, camera, map);
+        renderer = new GameRenderer(snapshots, tileSize, screenWidth, screenHeight);
+        renderer.setPerfStats(stats);
+
+        if (!"swing".equals(System.getProperty("game.renderer", "active")) && !GraphicsEnvironment.isHeadless()) {
+            Rectangle retryBounds = new Rectangle(screenWidth / 2 - 90, screenHeight / 2 + 90, 150, 50);
+            renderer.setRetryBounds(retryBounds);
+            canvas = new GameCanvas(renderer, screenWidth, screenHeight);
+            canvas.addKeyListener(keyH);
+            canvas.addKeyListener(perfKey);
+            canvas.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    if (retryBounds.contains(e.getPoint())) {
+                        keyH.click(InputState.RETRY);
+                    }
+                }
+            });
+            this.setLayout(null);
+            canvas.setBounds(0, 0, screenWidth, screenHeight);
+            this.add(canvas);
+        }
+    }
+
+    /**
+     * Starts the game loop at the server's tick rate in a separate thread.
+     */
+    public void startGameThread() {
+        gameLoop = new GameLoop(new GameLoop.Callbacks() {
+            @Override
+            public void tick() {
+                update();
+            }
+
+            @Override
+            public void render(double alpha) {
+                if (canvas != null) {
+                    canvas.render(alpha);
+                } else {
+                    renderAlpha = alpha;
+                    repaint();
+                }
+            }
+        }, client.getTicksPerSecond(), FPS);
+        if (canvas != null) {
+            canvas.requestFocus();
+        }
+        gameThread = new Thread(this, "game-loop");
+        gameThread.start();
+    }
+
+    /**
+     * Stops the game loop and tells the server this client left.
+     */
+    public void stopGameThread() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        gameThread = null;
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            System.err.println("Error disconnecting: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        gameLoop.run();
+    }
+
+    /**
+     * Exchanges datagrams with the server, moves playback on by a tick and publishes it for rendering.
+     */
+    public void update() {
+        long tickStart = stats.start();
+        input.beginTick();
+        keyH.queue.drainUntil(gameLoop.getTickTime(), input);
+        try {
+            client.poll();
+            client.sendInput(input.held());
+        } catch (IOException e) {
+            System.err.println("Network error: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        long start = stats.start();
+        if (client.advance()) {
+            NetState state = client.current;
+            TileMap map = mapFor(state.levelFile);
+            if ((state.flags & NetState.GAME_OVER) == 0) {
+                camera.setWorldSize(map.getCols() * tileSize, map.getRows() * tileSize);
+                camera.update(NetState.toPixels(state.playerX), NetState.toPixels(state.playerY));
+            }
+            snapshots.publish(client, camera, map);
+        }
+        stats.stop(PerfStats.CAMERA, start);
+        stats.stop(PerfStats.TICK, tickStart);
+    }
+
+    /**
+     * The map of a level file, or the generated map for -1.
+     */
+    private TileMap mapFor(int levelFile) {
+        if (levelFile < 0 || levelFile >= levels.length) {
+            if (generatedMap == null) {
+                generatedMap = TileMap.withBorderWalls(client.getCols(), client.getRows());
+            }
+            return generatedMap;
+        }
+        if (levelMaps[levelFile] == null) {
+            levelMaps[levelFile] = levels[levelFile].createMap();
+        }
+        return levelMaps[levelFile];
+    }
+
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (canvas == null) {
+            renderer.render((Graphics2D) g, renderAlpha);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * EntityStore keeps enemies or bosses as parallel primitive arrays (structure of arrays) instead of
+ * one heap object per entity, so the movement loops walk dense memory without pointer chasing.
+ * Entities are identified by their index; removal moves the last entity into the freed slot.
+ */
+public class EntityStore {
+    public static final byte KIND_ENEMY = 0;
+    public static final byte KIND_BOSS = 1;
+    static final int STATE_BYTES_PER_ENTITY = 33; // See writeState()
+
+    int size;
+    int[] x;
+    int[] y;
+    int[] prevX; // Position at the previous tick, used for render interpolation
+    int[] prevY;
+    int[] speed;
+    double[] angle;
+    byte[] kind;
+    long[] rng; // Per-entity FastRandom state, so entities can be updated in any order
+    int[] detourTicks; // Ticks left following the flow field after a wall blocked the direct move
+    int[] backX; // Write buffer for double-buffered updates, see swapPositionBuffers()
+    int[] backY;
+    int[] desiredX; // Step computed in bulk by SteeringKernel, before separation and collision
+    int[] desiredY;
+
+    public EntityStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        x = new int[capacity];
+        y = new int[capacity];
+        prevX = new int[capacity];
+        prevY = new int[capacity];
+        speed = new int[capacity];
+        angle = new double[capacity];
+        kind = new byte[capacity];
+        rng = new long[capacity];
+        detourTicks = new int[capacity];
+        backX = new int[capacity];
+        backY = new int[capacity];
+        desiredX = new int[capacity];
+        desiredY = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int index) {
+        return x[index];
+    }
+
+    public int getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Appends an entity and returns its index.
+     */
+    public int add(int newX, int newY, int newSpeed, double newAngle, byte newKind, long seed) {
+        if (size == x.length) {
+            grow();
+        }
+        int index = size++;
+        x[index] = newX;
+        y[index] = newY;
+        prevX[index] = newX;
+        prevY[index] = newY;
+        speed[index] = newSpeed;
+        angle[index] = newAngle;
+        kind[index] = newKind;
+        rng[index] = seed;
+        detourTicks[index] = 0;
+        return index;
+    }
+
+    /**
+     * Removes an entity by moving the last entity into its slot.
+     */
+    public void swapRemove(int index) {
+        int last = --size;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            prevX[index] = prevX[last];
+            prevY[index] = prevY[last];
+            speed[index] = speed[last];
+            angle[index] = angle[last];
+            kind[index] = kind[last];
+            rng[index] = rng[last];
+            detourTicks[index] = detourTicks[last];
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void savePreviousPositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    /**
+     * Makes the positions written to backX/backY current; the old positions become the next write buffer.
+     */
+    public void swapPositionBuffers() {
+        int[] swap = x;
+        x = backX;
+        backX = swap;
+        swap = y;
+        y = backY;
+        backY = swap;
+    }
+
+    /**
+     * Bytes writeState() needs for the current entities.
+     */
+    int stateBytes() {
+        return 4 + size * STATE_BYTES_PER_ENTITY;
+    }
+
+    /**
+     * Writes the entities' simulation state column by column: positions, speeds, detour ticks, angles,
+     * random streams and kinds. Previous positions and the scratch buffers are not needed to continue.
+     */
+    void writeState(ByteBuffer out) {
+        int n = size;
+        out.putInt(n);
+        for (int i = 0; i < n; i++) {
+            out.putInt(x[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.putInt(y[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.putInt(speed[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.putInt(detourTicks[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.putDouble(angle[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.putLong(rng[i]);
+        }
+        out.put(kind, 0, n);
+    }
+
+    /**
+     * Replaces all entities with the ones written by writeState(); previous positions become the current ones.
+     */
+    void readState(ByteBuffer in) {
+        int n = in.getInt();
+        while (x.length < n) {
+            grow();
+        }
+        size = n;
+        for (int i = 0; i < n; i++) {
+            x[i] = in.getInt();
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] = in.getInt();
+        }
+        for (int i = 0; i < n; i++) {
+            speed[i] = in.getInt();
+        }
+        for (int i = 0; i < n; i++) {
+            detourTicks[i] = in.getInt();
+        }
+        for (int i = 0; i < n; i++) {
+            angle[i] = in.getDouble();
+        }
+        for (int i = 0; i < n; i++) {
+            rng[i] = in.getLong();
+        }
+        in.get(kind, 0, n);
+        savePreviousPositions();
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        rng = Arrays.copyOf(rng, capacity);
+        detourTicks = Arrays.copyOf(detourTicks, capacity);
+        backX = Arrays.copyOf(backX, capacity);
+        backY = Arrays.copyOf(backY, capacity);
+        desiredX = Arrays.copyOf(desiredX, capacity);
+        desiredY = Arrays.copyOf(desiredY, capacity);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * FastRandom is a SplitMix64 generator whose whole state is a single long, so per-entity random
+ * streams can live in a primitive array and be advanced independently from any thread.
+ */
+public final class FastRandom {
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private FastRandom() {
+    }
+
+    /**
+     * Advances a state by one step.
+     */
+    public static long next(long state) {
+        return state + GAMMA;
+    }
+
+    /**
+     * Scrambles a state into a well-distributed 64-bit value; also used to derive seeds.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Uniform double in [0, 1) for a state.
+     */
+    public static double toDouble(long state) {
+        return (mix(state) >>> 11) * 0x1.0p-53;
+    }
+}
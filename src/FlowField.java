@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/**
+ * FlowField stores, for every open tile of the map, the direction of the shortest path towards the
+ * player's tile (a Dijkstra map on a uniform grid). It is rebuilt with a single breadth-first search
+ * when the player enters a new tile, after which any number of enemies can read their next step in O(1).
+ * On large maps the field only covers a window of WINDOW x WINDOW tiles centred on the target, so a
+ * rebuild costs the same however big the world is; tiles outside the window have no direction.
+ */
+public class FlowField {
+    // Direction 0 means "stay"; 1-4 are orthogonal, 5-8 diagonal
+    private static final int[] DX = {0, 1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    static final int WINDOW = 128; // Tiles per side of the area covered by the field
+
+    private TileMap map;
+    private int cols; // Window size, clipped to the map
+    private int rows;
+    private int originX; // Map tile of the window's top-left corner
+    private int originY;
+    private int[] distance = new int[0]; // Steps to the target tile, UNREACHABLE for walls and closed-off tiles
+    private byte[] direction = new byte[0]; // Index into DX/DY for each tile
+    private int[] queue = new int[0];
+    private int targetX = -1;
+    private int targetY = -1;
+
+    public FlowField(TileMap map) {
+        setMap(map);
+    }
+
+    /**
+     * Switches to another map, reusing the arrays when they are large enough; rebuilds on the next update.
+     */
+    public void setMap(TileMap map) {
+        this.map = map;
+        this.cols = Math.min(WINDOW, map.getCols());
+        this.rows = Math.min(WINDOW, map.getRows());
+        if (distance.length < rows * cols) {
+            distance = new int[rows * cols];
+            direction = new byte[rows * cols];
+            queue = new int[rows * cols];
+        }
+        invalidate();
+    }
+
+    /**
+     * Rebuilds the field if the target tile changed.
+     *
+     * @return true if the field was rebuilt
+     */
+    public boolean update(int tileX, int tileY) {
+        if (tileX == targetX && tileY == targetY) {
+            return false;
+        }
+        targetX = tileX;
+        targetY = tileY;
+        originX = Math.max(0, Math.min(map.getCols() - cols, tileX - cols / 2));
+        originY = Math.max(0, Math.min(map.getRows() - rows, tileY - rows / 2));
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Forces a rebuild on the next update, e.g. after the map changed.
+     */
+    public void invalidate() {
+        targetX = -1;
+        targetY = -1;
+    }
+
+    /**
+     * Whether the shortest walkable path from the tile is longer than the straight Manhattan distance,
+     * i.e. walls are in the way and steering straight at the target would get stuck.
+     */
+    public boolean needsDetour(int tileX, int tileY) {
+        int x = tileX - originX;
+        int y = tileY - originY;
+        if (!isInside(x, y) || targetX < 0) {
+            return false;
+        }
+        int steps = distance[y * cols + x];
+        return steps != UNREACHABLE && steps > Math.abs(tileX - targetX) + Math.abs(tileY - targetY);
+    }
+
+    /**
+     * X component (-1, 0 or 1) of the step from the given tile towards the target.
+     */
+    public int directionX(int tileX, int tileY) {
+        int x = tileX - originX;
+        int y = tileY - originY;
+        return isInside(x, y) ? DX[direction[y * cols + x]] : 0;
+    }
+
+    /**
+     * Y component (-1, 0 or 1) of the step from the given tile towards the target.
+     */
+    public int directionY(int tileX, int tileY) {
+        int x = tileX - originX;
+        int y = tileY - originY;
+        return isInside(x, y) ? DY[direction[y * cols + x]] : 0;
+    }
+
+    private void rebuild() {
+        Arrays.fill(distance, 0, rows * cols, UNREACHABLE);
+        Arrays.fill(direction, 0, rows * cols, (byte) 0);
+        int startX = targetX - originX;
+        int startY = targetY - originY;
+        if (!isOpen(startX, startY)) {
+            return;
+        }
+
+        // Breadth-first search outwards from the target over orthogonal neighbours, in window coordinates
+        int head = 0;
+        int tail = 0;
+        distance[startY * cols + startX] = 0;
+        queue[tail++] = startY * cols + startX;
+        while (head < tail) {
+            int tile = queue[head++];
+            int x = tile % cols;
+            int y = tile / cols;
+            for (int d = 1; d <= 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (isOpen(nx, ny) && distance[ny * cols + nx] == UNREACHABLE) {
+                    distance[ny * cols + nx] = distance[tile] + 1;
+                    queue[tail++] = ny * cols + nx;
+                }
+            }
+        }
+
+        // Point every reached tile at its closest neighbour, without cutting wall corners
+        for (int i = 0; i < tail; i++) {
+            int tile = queue[i];
+            int x = tile % cols;
+            int y = tile / cols;
+            int best = distance[tile];
+            for (int d = 1; d <= 8; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!isOpen(nx, ny) || (d > 4 && (!isOpen(nx, y) || !isOpen(x, ny)))) {
+                    continue;
+                }
+                int candidate = distance[ny * cols + nx];
+                if (candidate < best) {
+                    best = candidate;
+                    direction[tile] = (byte) d;
+                }
+            }
+        }
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < cols && y < rows;
+    }
+
+    private boolean isOpen(int x, int y) {
+        return isInside(x, y) && !map.isSolid(originX + x, originY + y);
+    }
+}
@@ -0,0 +1,51 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * GameCanvas is the active rendering backend: the game loop thread draws each frame straight into a
+ * page-flipped BufferStrategy and shows it, instead of posting repaint() requests to the Swing event thread.
+ * This keeps rendering on the same thread as the simulation and gives each frame a predictable time slot.
+ */
+public class GameCanvas extends Canvas {
+    private static final int BUFFER_PAGES = 3;
+
+    private final GameRenderer renderer;
+
+    public GameCanvas(GameRenderer renderer, int width, int height) {
+        this.renderer = renderer;
+        setPreferredSize(new Dimension(width, height));
+        setSize(width, height);
+        setIgnoreRepaint(true); // Frames are only drawn by render()
+        setBackground(Color.BLACK);
+    }
+
+    /**
+     * Draws and shows one frame; called from the game loop thread. Does nothing until the canvas is on screen.
+     */
+    public void render(double alpha) {
+        if (!isDisplayable()) {
+            return;
+        }
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            createBufferStrategy(BUFFER_PAGES); // Falls back to fewer pages or blitting if flipping is unavailable
+            strategy = getBufferStrategy();
+        }
+
+        // Redraw if the buffer contents were restored or lost while drawing
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    renderer.render(g, alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // Flush the window system's queue so the frame appears now rather than with the next batch
+        Toolkit.getDefaultToolkit().sync();
+    }
+}
@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameClient receives a GameServer's snapshots and plays them back. Fragments are reassembled per tick,
+ * decoded against the baseline state the server named, and every input sent acknowledges the latest
+ * decoded tick as the baseline for the next snapshots. Playback runs INTERPOLATION_DELAY ticks behind
+ * the latest snapshot, so states lost or delayed by the network are filled in by interpolating between
+ * the received ones; it speeds up or holds when the delay drifts and jumps ahead after a long gap.
+ * A client is driven by one thread: poll() for datagrams, sendInput() and advance() once per tick.
+ */
+public class GameClient {
+    static final int INTERPOLATION_DELAY = Integer.getInteger("game.netDelay", 6); // Ticks behind the latest snapshot
+    private static final int HISTORY = 64; // Received states kept for interpolation; a power of two
+    private static final int ASSEMBLY_SLOTS = 8; // Snapshots reassembled from fragments at the same time
+    private static final long CONNECT_RETRY_NANOS = 250_000_000L;
+
+    private final NetLink link;
+    private final SocketAddress server;
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final BitReader reader = new BitReader();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+
+    // Set by the server's welcome
+    private boolean connected;
+    private int tileSize;
+    private int ticksPerSecond;
+    private int cols;
+    private int rows;
+    private String levels;
+    private boolean owner; // Whether this client's input controls the player
+
+    private final NetState[] states = new NetState[HISTORY]; // Decoded states by tick modulo HISTORY
+    private int latestTick = -1;
+    private int inputSequence;
+
+    // Fragments of snapshots being reassembled
+    private final int[] assemblyTick = new int[ASSEMBLY_SLOTS];
+    private final int[] assemblyBaseline = new int[ASSEMBLY_SLOTS];
+    private final int[] assemblyFragments = new int[ASSEMBLY_SLOTS];
+    private final int[] assemblyMissing = new int[ASSEMBLY_SLOTS]; // Fragments still to come
+    private final int[] assemblyLength = new int[ASSEMBLY_SLOTS]; // Bytes, known once the last fragment arrived
+    private final long[][] assemblyReceived = new long[ASSEMBLY_SLOTS][4]; // Bitset of received fragments
+    private final byte[][] assemblyData = new byte[ASSEMBLY_SLOTS][];
+
+    // Playback: the states shown at playbackTick - 1 and playbackTick
+    private int playbackTick = -1;
+    final NetState previous = new NetState();
+    final NetState current = new NetState();
+
+    private long snapshotsDecoded;
+    private long fullSnapshots; // Snapshots decoded without a baseline
+    private long snapshotBytes;
+
+    public GameClient(NetLink link, SocketAddress server) {
+        this.link = link;
+        this.server = server;
+        for (int i = 0; i < HISTORY; i++) {
+            states[i] = new NetState();
+        }
+        Arrays.fill(assemblyTick, -1);
+    }
+
+    /**
+     * Asks the server to join until it answers, polling for up to the timeout.
+     *
+     * @return whether the server welcomed the client
+     */
+    public boolean connect(long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        long nextRequest = System.nanoTime();
+        while (!connected && System.nanoTime() < deadline) {
+            if (System.nanoTime() >= nextRequest) {
+                requestConnect();
+                nextRequest += CONNECT_RETRY_NANOS;
+            }
+            LockSupport.parkNanos(1_000_000L);
+            poll();
+        }
+        return connected;
+    }
+
+    /**
+     * Sends one request to join; for callers that poll() on their own until isConnected().
+     */
+    public void requestConnect() throws IOException {
+        ByteBuffer packet = sendBuffer.clear();
+        packet.put(NetProtocol.CONNECT);
+        packet.putInt(NetProtocol.VERSION);
+        link.send(packet.flip(), server);
+    }
+
+    /**
+     * Tells the server this client leaves. The datagram may be lost; the server drops silent clients anyway.
+     */
+    public void disconnect() throws IOException {
+        ByteBuffer packet = sendBuffer.clear();
+        packet.put(NetProtocol.DISCONNECT);
+        link.send(packet.flip(), server);
+        link.flush();
+    }
+
+    /**
+     * Handles all datagrams waiting on the channel and sends the held outgoing ones that are due.
+     */
+    public void poll() throws IOException {
+        SocketAddress from;
+        while ((from = link.receive(receiveBuffer.clear())) != null) {
+            if (!from.equals(server)) {
+                continue;
+            }
+            receiveBuffer.flip();
+            try {
+                handle(receiveBuffer);
+            } catch (BufferUnderflowException e) {
+                // Truncated datagram; ignore it
+            }
+        }
+        link.flush();
+    }
+
+    /**
+     * Sends the buttons held during this tick, acknowledging the latest decoded snapshot. Clients that
+     * do not control the player send it too, to acknowledge snapshots and stay connected.
+     */
+    public void sendInput(int buttons) throws IOException {
+        ByteBuffer packet = sendBuffer.clear();
+        packet.put(NetProtocol.INPUT);
+        packet.putInt(inputSequence++);
+        packet.putInt(latestTick);
+        packet.putInt(buttons);
+        link.send(packet.flip(), server);
+    }
+
+    /**
+     * Moves playback on by one tick, filling previous and current.
+     *
+     * @return false while no snapshot has been received
+     */
+    public boolean advance() {
+        if (latestTick < 0) {
+            return false;
+        }
+        int target = latestTick - INTERPOLATION_DELAY;
+        int lag = target - playbackTick;
+        if (playbackTick < 0 || lag > HISTORY / 2 || lag < -HISTORY / 2) {
+            // First snapshot, a long gap or a restarted server: start over at the target
+            playbackTick = Math.max(0, target);
+            stateAt(playbackTick, current);
+            previous.copyFrom(current);
+            return true;
+        }
+        // Catch up twice as fast when behind and wait when ahead, never passing the latest snapshot
+        int step = lag > 2 ? 2 : lag < -2 ? 0 : 1;
+        playbackTick = Math.min(latestTick, playbackTick + step);
+        previous.copyFrom(current);
+        stateAt(playbackTick, current);
+        return true;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isOwner() {
+        return owner;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Level files of the server's world, "" for the generated map.
+     */
+    public String getLevels() {
+        return levels;
+    }
+
+    public int getLatestTick() {
+        return latestTick;
+    }
+
+    /**
+     * The latest decoded state, or null before the first snapshot.
+     */
+    NetState getLatestState() {
+        return latestTick < 0 ? null : states[latestTick & (HISTORY - 1)];
+    }
+
+    public long getSnapshotsDecoded() {
+        return snapshotsDecoded;
+    }
+
+    public long getFullSnapshots() {
+        return fullSnapshots;
+    }
+
+    public long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    private void handle(ByteBuffer packet) {
+        byte type = packet.get();
+        if (type == NetProtocol.WELCOME) {
+            if (packet.getInt() != NetProtocol.VERSION) {
+                return;
+            }
+            tileSize = packet.getInt();
+            ticksPerSecond = packet.getInt();
+            cols = packet.getInt();
+            rows = packet.getInt();
+            levels = NetProtocol.getString(packet);
+            connected = true;
+        } else if (type == NetProtocol.SNAPSHOT && connected) {
+            int tick = packet.getInt();
+            int baselineTick = packet.getInt();
+            int fragment = packet.get() & 0xFF;
+            int fragments = packet.get() & 0xFF;
+            int flags = packet.get();
+            if (tick <= latestTick || fragment >= fragments) {
+                return; // Older than what was decoded already
+            }
+            owner = (flags & NetProtocol.FLAG_OWNER) != 0;
+            receiveFragment(tick, baselineTick, fragment, fragments, packet);
+        }
+    }
+
+    private void receiveFragment(int tick, int baselineTick, int fragment, int fragments, ByteBuffer packet) {
+        int slot = -1;
+        int oldest = 0;
+        for (int i = 0; i < ASSEMBLY_SLOTS; i++) {
+            if (assemblyTick[i] == tick) {
+                slot = i;
+                break;
+            }
+            if (assemblyTick[i] < assemblyTick[oldest]) {
+                oldest = i;
+            }
+        }
+        if (slot < 0) {
+            // Start a new snapshot, giving up the oldest incomplete one
+            slot = oldest;
+            assemblyTick[slot] = tick;
+            assemblyBaseline[slot] = baselineTick;
+            assemblyFragments[slot] = fragments;
+            assemblyMissing[slot] = fragments;
+            assemblyLength[slot] = -1;
+            Arrays.fill(assemblyReceived[slot], 0);
+            int capacity = fragments * NetProtocol.MAX_FRAGMENT;
+            if (assemblyData[slot] == null || assemblyData[slot].length < capacity) {
+                assemblyData[slot] = new byte[Math.max(capacity, 2 * NetProtocol.MAX_PACKET)];
+            }
+        }
+        long[] received = assemblyReceived[slot];
+        if ((received[fragment >> 6] & 1L << fragment) != 0 || assemblyBaseline[slot] != baselineTick
+                || assemblyFragments[slot] != fragments) {
+            return; // Duplicate or inconsistent
+        }
+        received[fragment >> 6] |= 1L << fragment;
+        int offset = fragment * NetProtocol.MAX_FRAGMENT;
+        int length = packet.remaining();
+        packet.get(assemblyData[slot], offset, length);
+        if (fragment == fragments - 1) {
+            assemblyLength[slot] = offset + length;
+        }
+        if (--assemblyMissing[slot] == 0) {
+            decode(slot);
+            assemblyTick[slot] = -1;
+        }
+    }
+
+    private void decode(int slot) {
+        int tick = assemblyTick[slot];
+        int baselineTick = assemblyBaseline[slot];
+        NetState baseline = NetState.EMPTY;
+        if (baselineTick >= 0) {
+            if (baselineTick >= tick || tick - baselineTick >= HISTORY) {
+                return; // Not a baseline the server could have used
+            }
+            baseline = states[baselineTick & (HISTORY - 1)];
+            if (baseline.tick != baselineTick) {
+                return; // Encoded against a state this client never decoded
+            }
+        }
+        NetState target = states[tick & (HISTORY - 1)];
+        reader.reset(assemblyData[slot], 0, assemblyLength[slot]);
+        if (!codec.read(baseline, reader, target, tick)) {
+            target.tick = -1;
+            return;
+        }
+        latestTick = tick;
+        snapshotsDecoded++;
+        snapshotBytes += assemblyLength[slot];
+        if (baselineTick < 0) {
+            fullSnapshots++;
+        }
+        // Older incomplete snapshots are of no use any more
+        for (int i = 0; i < ASSEMBLY_SLOTS; i++) {
+            if (assemblyTick[i] < tick) {
+                assemblyTick[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Fills out with the state at a tick: the received one, or one interpolated between the nearest
+     * received states before and after it, or the nearest one if the tick is not enclosed.
+     */
+    private void stateAt(int tick, NetState out) {
+        NetState before = null;
+        NetState after = null;
+        for (int t = tick; t > tick - HISTORY && t >= 0; t--) {
+            NetState state = states[t & (HISTORY - 1)];
+            if (state.tick == t) {
+                before = state;
+                break;
+            }
+        }
+        for (int t = tick + 1; t <= latestTick && t < tick + HISTORY; t++) {
+            NetState state = states[t & (HISTORY - 1)];
+            if (state.tick == t) {
+                after = state;
+                break;
+            }
+        }
+        if (before != null && (before.tick == tick || after == null)) {
+            out.copyFrom(before);
+        } else if (before != null) {
+            out.interpolate(before, after, tick, tileSize);
+        } else if (after != null) {
+            out.copyFrom(after);
+        } else {
+            out.copyFrom(states[latestTick & (HISTORY - 1)]);
+        }
+        out.tick = tick;
+    }
+}
@@ -0,0 +1,155 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * GameEvents are the game's Java Flight Recorder events, so a recording shows ticks, frames, spawns, waves
+ * and level transitions next to GC pauses and safepoints. Events are created, timed and committed where
+ * they happen; while JFR is off or an event is disabled or under its threshold, shouldCommit() is false,
+ * no fields are filled in, and the JIT removes the event object. Thresholds can be changed in the
+ * recording settings, e.g. -XX:StartFlightRecording:settings=profile,game.Tick#threshold=0ms.
+ */
+final class GameEvents {
+    private static final String CATEGORY = "Game";
+
+    private GameEvents() {
+    }
+
+    @Name("game.Tick")
+    @Label("Tick")
+    @Category({CATEGORY, "Simulation"})
+    @Description("A simulation tick that took longer than the threshold")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static class Tick extends Event {
+        @Label("Tick Number")
+        long tick;
+
+        @Label("Enemies")
+        int enemies;
+
+        @Label("Bosses")
+        int bosses;
+    }
+
+    @Name("game.Render")
+    @Label("Render")
+    @Category({CATEGORY, "Rendering"})
+    @Description("A frame that took longer than the threshold to draw")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static class Render extends Event {
+        @Label("Tick Number")
+        @Description("Tick of the snapshot that was drawn")
+        long tick;
+
+        @Label("Enemies")
+        int enemies;
+
+        @Label("Particles")
+        int particles;
+    }
+
+    @Name("game.EntityCount")
+    @Label("Entity Count")
+    @Category({CATEGORY, "Simulation"})
+    @Description("Number of entities, once per simulated second")
+    @StackTrace(false)
+    static class EntityCount extends Event {
+        @Label("Enemies")
+        int enemies;
+
+        @Label("Bosses")
+        int bosses;
+
+        @Label("Particles")
+        int particles;
+
+        @Label("Resident Map Chunks")
+        int residentChunks;
+    }
+
+    @Name("game.Spawn")
+    @Label("Spawn")
+    @Category({CATEGORY, "Spawning"})
+    @Description("Search for a free cell for one enemy or boss")
+    @StackTrace(false)
+    static class Spawn extends Event {
+        @Label("Boss")
+        boolean boss;
+
+        @Label("Attempts")
+        @Description("Cells tested, random candidates first, then every cell if they all failed")
+        long attempts;
+
+        @Label("Spacing")
+        @Description("Tiles kept from other enemies")
+        int spacing;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("game.Wave")
+    @Label("Wave")
+    @Category({CATEGORY, "Spawning"})
+    @Description("Placement of a wave of enemies")
+    @StackTrace(false)
+    static class Wave extends Event {
+        @Label("Requested")
+        int requested;
+
+        @Label("Spawned")
+        int spawned;
+
+        @Label("Attempts")
+        @Description("Cells tested for all enemies of the wave")
+        long attempts;
+
+        @Label("Final Spacing")
+        @Description("Tiles kept from other enemies after halving it on crowded maps")
+        int spacing;
+    }
+
+    @Name("game.LevelUp")
+    @Label("Level Up")
+    @Category({CATEGORY, "Progression"})
+    @Description("Level transition, including loading the next level file")
+    @StackTrace(false)
+    static class LevelUp extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Level File")
+        @Description("Index of the level file played next, -1 without level files")
+        int levelFile;
+
+        @Label("Map Columns")
+        int cols;
+
+        @Label("Map Rows")
+        int rows;
+    }
+
+    @Name("game.BossBattle")
+    @Label("Boss Battle")
+    @Category({CATEGORY, "Progression"})
+    @Description("A boss battle from its start to its end")
+    @StackTrace(false)
+    static class BossBattle extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Bosses")
+        @Description("Bosses at the end of the battle")
+        int bosses;
+
+        @Label("Enemies")
+        @Description("Enemies at the end of the battle")
+        int enemies;
+    }
+}
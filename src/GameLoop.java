@@ -0,0 +1,105 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop runs the simulation at a fixed tick rate and renders at an independent frame rate.
+ * Ticks are accumulated from real elapsed time, and the thread parks between frames instead of
+ * spinning; only the last fraction of a millisecond before a frame is busy-waited.
+ */
+public class GameLoop implements Runnable {
+
+    /**
+     * Receives the fixed-rate simulation ticks and the rendered frames.
+     */
+    public interface Callbacks {
+        void tick();
+
+        /**
+         * @param alpha How far (0..1) the frame lies between the previous and the current tick
+         */
+        void render(double alpha);
+    }
+
+    private static final long SPIN_THRESHOLD_NANOS = 500_000L; // Busy-wait only the last 0.5ms
+    private static final int MAX_TICKS_PER_FRAME = 5; // Drop backlog instead of spiralling after a stall
+
+    private final Callbacks callbacks;
+    private final long tickNanos;
+    private final long frameNanos;
+    private volatile boolean running;
+
+    private long tickTime; // Real time at which the current tick's interval ends
+
+    public GameLoop(Callbacks callbacks, int ticksPerSecond, int framesPerSecond) {
+        if (ticksPerSecond <= 0 || framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick and frame rates must be positive");
+        }
+        this.callbacks = callbacks;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.frameNanos = 1_000_000_000L / framesPerSecond;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * System.nanoTime() at the end of the real-time interval simulated by the tick in progress; input
+     * that happened up to this time belongs to the tick. Only valid from within Callbacks.tick().
+     */
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        long previousTime = System.nanoTime();
+        long nextFrameTime = previousTime;
+        long accumulator = 0;
+
+        while (running) {
+            long currentTime = System.nanoTime();
+            long elapsed = currentTime - previousTime;
+            previousTime = currentTime;
+            accumulator += elapsed;
+
+            // Advance the simulation in fixed steps
+            int ticks = 0;
+            while (accumulator >= tickNanos && ticks < MAX_TICKS_PER_FRAME) {
+                tickTime = currentTime - accumulator + tickNanos;
+                callbacks.tick();
+                accumulator -= tickNanos;
+                ticks++;
+            }
+            if (accumulator >= tickNanos) {
+                accumulator %= tickNanos; // Too far behind, skip the missed ticks
+            }
+
+            callbacks.render((double) accumulator / tickNanos);
+
+            nextFrameTime += frameNanos;
+            long now = System.nanoTime();
+            if (nextFrameTime < now - frameNanos) {
+                nextFrameTime = now; // Missed more than a frame, resynchronize
+            }
+            waitUntil(nextFrameTime);
+        }
+    }
+
+    /**
+     * Parks the thread until shortly before the deadline, then spins for the remainder.
+     */
+    private static void waitUntil(long deadline) {
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
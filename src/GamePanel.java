@@ -2,13 +2,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.TimerTask;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 
 /**
- * GamePanel is a custom JPanel that handles the game logic and rendering.
- * It supports player movement, enemy behavior, and a simple obstacle-based map.
+ * GamePanel is a custom JPanel that renders a GameWorld and feeds it keyboard input.
+ * The game logic itself lives in GameWorld; the panel only draws the state and shows messages.
+ * Frames are drawn by a GameRenderer, either actively into a GameCanvas from the game loop (the default)
+ * or through repaint() and paintComponent() when run with -Dgame.renderer=swing.
  */
 public class GamePanel extends JPanel implements Runnable {
 
@@ -20,46 +26,52 @@ public class GamePanel extends JPanel implements Runnable {
     final int maxScreenRow = 20; // Number of tiles vertically
     final int screenWidth = tileSize * maxScreenCol; // Total screen width in pixels
     final int screenHeight = tileSize * maxScreenRow; // Total screen height in pixels
+    final int worldCols = Integer.getInteger("game.worldCols", maxScreenCol); // World size in tiles
+    final int worldRows = Integer.getInteger("game.worldRows", maxScreenRow);
+    final int historySeconds = Integer.getInteger("game.historySeconds", 30); // Rewind history, 0 for none
 
-    private long startTime; // Start time of the game
-    private long elapsedTime; // Elapsed time in milliseconds
-    private String formattedTime = "0:00"; // Formatted time to display
-    private String longestTime = "Longest Time: 0:00"; // For game over display
+    // Background music, streamed on its own thread
+    private static final int GAME_MUSIC = 0;
+    private static final int BOSS_THEME = 1;
+    private final MusicPlayer music = new MusicPlayer(Paths.get("src", "game_music.wav"), // Relative to src
+            Paths.get("src", "boss_theme.wav"));
 
-    // Create instances of the Sound class
-    private ArrayList<Sound> sounds = new ArrayList<>();
-
-    private ArrayList<Particle> particles = new ArrayList<>();
+    // Sound effects, mixed into the music line
+    private final SoundEffects effects = new SoundEffects();
+    private int hitSound;
+    private int spawnSound;
+    private int bossSpawnSound;
 
 
     // Game properties
-    int FPS = 60; // Frames per second for the game loop
+    int FPS = Integer.getInteger("game.fps", 60); // Frames rendered per second
+    int TPS = Integer.getInteger("game.tps", 60); // Simulation ticks per second
     KeyHandler keyH = new KeyHandler(); // Handles keyboard input
+    private final KeyAdapter perfKey = new KeyAdapter() { // F3 toggles the performance overlay
+        @Override
+        public void keyPressed(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_F3) {
+                stats.toggle();
+            }
+        }
+    };
     Thread gameThread; // Thread to run the game loop
-    int playerX = (maxScreenCol * tileSize) / 2 - tileSize / 2;
-    int playerY = (maxScreenRow * tileSize) / 2 - tileSize / 2;
-    int playerSpeed = 4; // Speed of the player in pixels per frame
+    private GameLoop gameLoop; // Fixed-timestep scheduler driving update() and rendering
+    private volatile double renderAlpha; // Interpolation factor between the previous and current tick
+    private final InputState input = new InputState(); // Input of the current tick, game thread only
+    private InputRecording recording; // Per-tick input written on exit with -Dgame.record=<file>
 
     private Camera camera; // New Camera
+    private final SnapshotBuffer snapshots; // Hands the state after each tick to the renderer
+    private final GameRenderer renderer; // Draws frames for either backend
+    private GameCanvas canvas; // Active rendering backend, null when painting through Swing
+    private final PerfStats stats = new PerfStats(); // Phase timings, shown with F3
 
-    // Map and enemy definitions
-    int[][] map = new int[maxScreenRow][maxScreenCol]; // 2D map for obstacles
-    ArrayList<Enemy> enemies = new ArrayList<>(); // List of enemy entities
-    ArrayList<Boss> bosses = new ArrayList<>(); // List of boss entities
-    private long bossBattleStartTime;
-    long lastEnemySpawnTime = 0; // Timestamp for the last enemy spawn
-    long bossSpawnInterval = 30000; // Timestamp for the last enemy spawn
-    long spawnInterval = 10000; // Interval between enemy spawns in milliseconds
-
-    // Game state
-    boolean gameOver = false; // Flag to indicate if the game has ended
+    // Headless simulation holding the game state and rules
+    final GameWorld world;
 
     private JButton retryButton;
 
-    private static int level;
-
-    private static int boss_battle_count = 0;
-
     private JButton attribute_1_Button;
     private JButton attribute_2_Button;
     private JButton attribute_3_Button;
@@ -75,23 +87,59 @@ public class GamePanel extends JPanel implements Runnable {
         this.addKeyListener(keyH);
         this.setFocusable(true);
 
-        // Initialize the map with obstacles along the edges
-        for (int row = 0; row < maxScreenRow; row++) {
-            for (int col = 0; col < maxScreenCol; col++) {
-                if (row == 0 || row == maxScreenRow - 1 || col == 0 || col == maxScreenCol - 1) {
-                    map[row][col] = 1; // Mark edges as obstacles
-                } else {
-                    map[row][col] = 0; // Open space
-                }
-            }
+        // The world plays the level files from -Dgame.levels, or builds a map with obstacles along the edges
+        long seed = System.nanoTime();
+        world = createWorld(seed);
+        world.setListener(new WorldListener());
+        world.setParallelEnemyUpdate(Boolean.getBoolean("game.parallelEnemies"));
+        world.setFastSteering(Boolean.getBoolean("game.fastSteering"));
+        world.setPerfStats(stats);
+        if (historySeconds > 0) {
+            world.setHistory(new WorldHistory(historySeconds, TPS)); // A checkpoint every second
         }
+        stats.setEnabled(Boolean.getBoolean("game.perf"));
+        initializeRecording(seed);
 
         initializeSounds();
-        initializeRetryButton();
 
-        // New Camera Instance
-        camera = new Camera(maxScreenCol, maxScreenRow, screenWidth, screenHeight);
+        // The camera follows the player within the world's bounds
+        camera = new Camera(world.maxCol * tileSize, world.maxRow * tileSize, screenWidth, screenHeight);
+        snapshots = new SnapshotBuffer(world, camera);
+        renderer = new GameRenderer(snapshots, tileSize, screenWidth, screenHeight);
+        renderer.setPerfStats(stats);
+        this.addKeyListener(perfKey);
 
+        // -Dgame.renderer=swing selects the repaint() path, e.g. where page flipping misbehaves
+        if (!"swing".equals(System.getProperty("game.renderer", "active")) && !GraphicsEnvironment.isHeadless()) {
+            initializeCanvas();
+        } else {
+            initializeRetryButton();
+        }
+    }
+
+    /**
+     * Covers the panel with a GameCanvas that the game loop draws into directly. Swing components would be
+     * hidden behind the heavyweight canvas, so the retry button is drawn by the HUD instead.
+     */
+    private void initializeCanvas() {
+        Rectangle retryBounds = new Rectangle(screenWidth / 2 - 90, screenHeight / 2 + 90, 150, 50);
+        renderer.setRetryBounds(retryBounds);
+
+        canvas = new GameCanvas(renderer, screenWidth, screenHeight);
+        canvas.addKeyListener(keyH);
+        canvas.addKeyListener(perfKey);
+        canvas.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (retryBounds.contains(e.getPoint())) {
+                    keyH.click(InputState.RETRY);
+                }
+            }
+        });
+
+        this.setLayout(null);
+        canvas.setBounds(0, 0, screenWidth, screenHeight);
+        this.add(canvas);
     }
 
     private void initializeRetryButton() {
@@ -99,12 +147,13 @@ public class GamePanel extends JPanel implements Runnable {
         retryButton.setFont(new Font("Arial", Font.BOLD, 20));
         retryButton.setBounds(screenWidth / 2 - 90, screenHeight / 2 + 90, 150, 50);
         retryButton.setFocusPainted(false);
+        retryButton.setFocusable(false); // Keep keyboard focus on the panel
         retryButton.setVisible(false);
 
         retryButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                restartGame();
+                keyH.click(InputState.RETRY);
             }
         });
 
@@ -112,701 +161,202 @@ public class GamePanel extends JPanel implements Runnable {
         this.add(retryButton);
     }
 
-    /**
-     * Initialize sound effects and background music.
-     */
-    private void initializeSounds() {
-        try {
-            Sound backgroundMusic = new Sound();
-            backgroundMusic.setFile("game_music.wav"); // Relative to src
-            sounds.add(backgroundMusic);
-            backgroundMusic.loop();
-
-            Sound bossTheme = new Sound();
-            bossTheme.setFile("boss_theme.wav"); // Relative to src
-            sounds.add(bossTheme);
-
-
-        } catch (Exception e) {
-            System.err.println("Error initializing sounds: " + e.getMessage());
-            e.printStackTrace();
+    private GameWorld createWorld(long seed) {
+        String levels = System.getProperty("game.levels");
+        if (levels != null) {
+            try {
+                return new GameWorld(new TickClock(TPS), seed, tileSize, LevelFile.openAll(levels));
+            } catch (IOException e) {
+                System.err.println("Error loading levels: " + e.getMessage());
+                e.printStackTrace();
+            }
         }
+        return new GameWorld(new TickClock(TPS), seed, tileSize, worldCols, worldRows);
     }
 
     /**
-     * Play a specific sound effect.
-     *
-     * @param index Index of the sound effect in the sounds list
+     * With -Dgame.record=<file>, records the input of every tick and saves it when the JVM exits,
+     * for replay with HeadlessRunner.
      */
-    public void playSound(int index) {
-        if (index >= 0 && index < sounds.size()) {
-            sounds.get(index).play();
-        } else {
-            System.err.println("Invalid sound index: " + index);
+    private void initializeRecording(long seed) {
+        String path = System.getProperty("game.record");
+        if (path == null) {
+            return;
         }
+        int options = (Boolean.getBoolean("game.parallelEnemies") ? InputRecording.PARALLEL_ENEMIES : 0)
+                | (Boolean.getBoolean("game.fastSteering") ? InputRecording.FAST_STEERING : 0)
+                | historySeconds << InputRecording.HISTORY_SHIFT;
+        InputRecording session = new InputRecording(seed, TPS, options, worldCols, worldRows,
+                System.getProperty("game.levels", ""));
+        recording = session;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopGameThread();
+            try {
+                synchronized (session) {
+                    session.save(Paths.get(path));
+                }
+                System.out.println("Saved " + session.length() + " ticks of input to " + path);
+            } catch (IOException e) {
+                System.err.println("Error saving input recording: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }));
     }
 
     /**
-     * Stop a specific sound effect.
-     *
-     * @param index Index of the sound effect in the sounds list
+     * Loads the sound effects and starts the background music; music files are opened and streamed on the
+     * music thread.
      */
-    public void stopSound(int index) {
-        if (index >= 0 && index < sounds.size()) {
-            sounds.get(index).stop();
-        } else {
-            System.err.println("Invalid sound index: " + index);
-        }
+    private void initializeSounds() {
+        hitSound = effects.load(Paths.get("src", "hit.wav"), MusicPlayer.FORMAT);
+        spawnSound = effects.load(Paths.get("src", "spawn.wav"), MusicPlayer.FORMAT);
+        bossSpawnSound = effects.load(Paths.get("src", "boss_spawn.wav"), MusicPlayer.FORMAT);
+        music.setEffects(effects);
+        music.play(GAME_MUSIC);
+        music.start();
     }
 
     /**
-     * Starts the game loop in a separate thread.
+     * Plays an effect panned by where (x, y) is on screen.
      */
-    public void startGameThread() {
-        gameThread = new Thread(this);
-        gameThread.start();
-        startTime = System.currentTimeMillis();
+    private void playEffect(int sound, int x, float gain, int priority) {
+        float pan = (x + tileSize / 2f - camera.getX() - screenWidth / 2f) / (screenWidth / 2f);
+        effects.play(sound, gain, pan, priority);
     }
 
     /**
-     * Main game loop that handles updates and rendering.
+     * Starts the game loop in a separate thread.
      */
-    @Override
-    public void run() {
-        double drawInterval = (double) 1000000000 / FPS;
-        double delta = 0;
-        long lastTime = System.nanoTime();
-        long currentTime;
-        long timer = 0;
-        int drawCount = 0;
-
-        while (gameThread != null) {
-            currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / drawInterval;
-            timer += (currentTime - lastTime);
-            lastTime = currentTime;
-
-            if (delta >= 1) {
+    public void startGameThread() {
+        gameLoop = new GameLoop(new GameLoop.Callbacks() {
+            @Override
+            public void tick() {
                 update();
-                repaint();
-                delta--;
-                drawCount++;
-            }
-            if (timer >= 1000000000) {
-                System.out.println("FPS: " + drawCount);
-                drawCount = 0;
-                timer = 0;
             }
-        }
-    }
-
 
-    /**
-     * Updates the game state, including player movement, enemy behavior, and level logic.
-     */
-    public void update() {
-        if (gameOver) {
-            handleGameOver();
-            return;
-        }
-
-        // Update elapsed time and check for level progression
-        elapsedTime = (System.currentTimeMillis() - startTime) / 1000; // Convert to seconds
-        long minutes = elapsedTime / 60;
-        long seconds = elapsedTime % 60;
-        formattedTime = String.format("%d:%02d", minutes, seconds);
-
-        // Trigger level up every 2 minutes
-        if (!bossBattleActive) {
-            if (elapsedTime % 120 == 0 && elapsedTime != 0) {
-                levelUp();
-            }
-        }
-
-        // For 5 every level the boss battle begins
-        if (!bossBattleActive && level > 0 && level % 5 == 0) {
-            playSound(1);
-            stopSound(0);
-            bossBattle(); // Start boss battle when the level is a valid values
-
-            // Spawns in waves for boss enemies
-            spawnNewWaveBoss();
-            boss_wave_enemy_count++;
-
-            if (boss_battle_count > 0) {
-                for (int i = 0; i < boss_battle_count; i++) {
-                    spawnBossEnemy();
+            @Override
+            public void render(double alpha) {
+                if (canvas != null) {
+                    canvas.render(alpha);
+                } else {
+                    renderAlpha = alpha;
+                    repaint();
                 }
             }
-            boss_battle_count++;
-
-        }
-
-
-
-        // Check if the boss battle is over or if 10 seconds have passed
-        if (bossBattleActive) {
-            long timeElapsedInBossBattle = (System.currentTimeMillis() - bossBattleStartTime) / 1000;
-            if (timeElapsedInBossBattle >= 10) {
-                stopSound(1);
-                playSound(0);
-                level++;
-                bossBattleActive = false;
-            }
+        }, TPS, FPS);
+        if (canvas != null) {
+            canvas.requestFocus();
         }
-
-
-        // Handle player movement
-        handlePlayerMovement();
-
-        // Update enemy movement
-        handleEnemyMovement();
-
-        // Update boss movement
-        handleBossMovement();
-
-        // Update camera position
-        camera.update(playerX, playerY);
-
+        gameThread = new Thread(this, "game-loop");
+        gameThread.start();
     }
 
     /**
-     * Handles game over logic and the retry button visibility.
+     * Stops the game loop; the thread exits after the current frame.
      */
-    private void handleGameOver() {
-        long currentSeconds = elapsedTime;
-        long longestSeconds = parseTimeToSeconds(longestTime);
-
-        if (currentSeconds > longestSeconds) {
-            longestTime = "Longest Time: " + formattedTime;
+    public void stopGameThread() {
+        if (gameLoop != null) {
+            gameLoop.stop();
         }
-
-        retryButton.setVisible(true);
+        gameThread = null;
     }
 
     /**
-     * Handles player movement based on keyboard input.
+     * Main game loop that handles updates and rendering.
      */
-    private void handlePlayerMovement() {
-        int xSpeed = 0;
-        int ySpeed = 0;
-
-        if (keyH.upPressed) ySpeed -= playerSpeed;
-        if (keyH.downPressed) ySpeed += playerSpeed;
-        if (keyH.leftPressed) xSpeed -= playerSpeed;
-        if (keyH.rightPressed) xSpeed += playerSpeed;
-
-        // Normalize diagonal movement
-        if (xSpeed != 0 && ySpeed != 0) {
-            double scale = playerSpeed / Math.sqrt(xSpeed * xSpeed + ySpeed * ySpeed);
-            xSpeed *= scale;
-            ySpeed *= scale;
-        }
-
-        // Calculate next position and check collisions
-        int nextX = playerX + xSpeed;
-        int nextY = playerY + ySpeed;
-
-        // Collision detection
-        if (!isCollidingWithObstacle(nextX / tileSize, nextY / tileSize) &&
-                !isCollidingWithObstacle((nextX + tileSize - 1) / tileSize, nextY / tileSize) &&
-                !isCollidingWithObstacle(nextX / tileSize, (nextY + tileSize - 1) / tileSize) &&
-                !isCollidingWithObstacle((nextX + tileSize - 1) / tileSize, (nextY + tileSize - 1) / tileSize)) {
-            playerX = nextX;
-            playerY = nextY;
-        }
+    @Override
+    public void run() {
+        gameLoop.run();
     }
 
+
     /**
-     * Handles enemy movement and behavior.
+     * Applies the input that arrived during this tick to the world, advances it by one tick, follows the
+     * player with the camera and publishes the result for rendering.
      */
-    private void handleEnemyMovement() {
-        // Enemy movement
-        double slowDownFactor = 0.8;
-        double circleRadius = 70; // Circle Radius for Circling Mechanic
-
-        for (Enemy enemy : enemies) {
-            int enemyX = enemy.x;
-            int enemyY = enemy.y;
-            // Randomize angle slightly for varied movement
-            enemy.angle += Math.random() * Math.PI / 8 - Math.PI / 16; // Slightly randomized angle increment
-
-            // Calculate circular target position relative to player
-            int targetX = (int) (playerX + circleRadius * Math.cos(enemy.angle));
-            int targetY = (int) (playerY + circleRadius * Math.sin(enemy.angle));
-
-            // Calculate direction to target
-            int deltaX = targetX - enemyX;
-            int deltaY = targetY - enemyY;
-            double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-
-            if (distance > 0) {
-                // Normalize movement and apply slowdown factor
-                double moveX = (deltaX / distance) * enemy.speed * slowDownFactor;
-                double moveY = (deltaY / distance) * enemy.speed * slowDownFactor;
-
-                int newEnemyX = (int) (enemy.x + moveX);
-                int newEnemyY = (int) (enemy.y + moveY);
-
-                // Handle collision with other enemies
-                for (Enemy otherEnemy : enemies) {
-                    if (enemy != otherEnemy) {
-                        double dx = newEnemyX - otherEnemy.x;
-                        double dy = newEnemyY - otherEnemy.y;
-                        double distanceToOther = Math.sqrt(dx * dx + dy * dy);
-
-                        if (distanceToOther < tileSize) {
-                            double moveAwayX = (enemy.x - otherEnemy.x) * 0.5;
-                            double moveAwayY = (enemy.y - otherEnemy.y) * 0.5;
-                            newEnemyX += moveAwayX;
-                            newEnemyY += moveAwayY;
-                        }
-                    }
-                }
-
-                // Check if new position is valid
-                if (!isCollidingWithObstacle(newEnemyX / tileSize, newEnemyY / tileSize)) {
-                    enemy.x = newEnemyX;
-                    enemy.y = newEnemyY;
-                }
-            }
-
-            // Check collision with player
-            if (isCollidingWithEntity(playerX, playerY, enemy.x, enemy.y)) {
-                gameOver = true;
-                return;
+    public void update() {
+        long tickStart = stats.start();
+        input.beginTick();
+        keyH.queue.drainUntil(gameLoop.getTickTime(), input);
+        if (recording != null) {
+            synchronized (recording) {
+                recording.record(input);
             }
         }
-        // Check if 10 seconds have passed to spawn a new enemy
-        if (System.currentTimeMillis() - lastEnemySpawnTime >= spawnInterval) {
-            spawnNewEnemy();
-            lastEnemySpawnTime = System.currentTimeMillis();
-        }
-    }
-
-    private void handleBossMovement() {
-        // Boss movement logic
-        double slowDownFactor = 0.8;
-
-        for (Boss boss : bosses) {
-            int bossX = boss.x;
-            int bossY = boss.y;
-
-            // Calculate direction to the player
-            int deltaX = playerX - bossX;
-            int deltaY = playerY - bossY;
-            double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-
-            if (distance > 0) {
-                // Normalize movement and apply slowdown factor
-                double moveX = (deltaX / distance) * boss.speed * slowDownFactor;
-                double moveY = (deltaY / distance) * boss.speed * slowDownFactor;
-
-                int newBossX = (int) (boss.x + moveX);
-                int newBossY = (int) (boss.y + moveY);
-
-                // Handle collision with other bosses (optional)
-                if (isCollidingWithOtherBoss(boss, newBossX, newBossY)) {
-                    double moveAwayX = (boss.x - newBossX) * 0.5;
-                    double moveAwayY = (boss.y - newBossY) * 0.5;
-                    newBossX += moveAwayX;
-                    newBossY += moveAwayY;
-                }
-
-
-                // Handle collision with enemies
-                for (Enemy enemy : enemies) {
-                    double dx = newBossX - enemy.x;
-                    double dy = newBossY - enemy.y;
-                    double distanceToEnemy = Math.sqrt(dx * dx + dy * dy);
-
-                    if (distanceToEnemy < tileSize) {
-                        double moveAwayX = (boss.x - enemy.x) * 0.5;
-                        double moveAwayY = (boss.y - enemy.y) * 0.5;
-                        newBossX += moveAwayX;
-                        newBossY += moveAwayY;
-                    }
-                }
-
 
-                // Check if new position is valid
-                if (!isCollidingWithObstacle(newBossX / tileSize, newBossY / tileSize)) {
-                    boss.x = newBossX;
-                    boss.y = newBossY;
-                }
-            }
-
-            // Check collision with player
-            if (isCollidingWithEntity(playerX, playerY, boss.x, boss.y)) {
-                gameOver = true;
-                return;
-            }
+        world.applyInput(input);
+        world.step(1);
+        long start = stats.start();
+        if (!world.isGameOver()) {
+            // Update camera position
+            Player player = world.getPlayer();
+            camera.setWorldSize(world.maxCol * tileSize, world.maxRow * tileSize); // Levels may differ in size
+            camera.update(player.getX(), player.getY());
         }
-    }
 
-    // Helper method to check for collisions with other bosses
-    private boolean isCollidingWithOtherBoss(Boss boss, int newBossX, int newBossY) {
-        for (Boss otherBoss : bosses) {
-            if (boss != otherBoss) {
-                double dx = newBossX - otherBoss.x;
-                double dy = newBossY - otherBoss.y;
-                double distanceToOther = Math.sqrt(dx * dx + dy * dy);
-                if (distanceToOther < tileSize) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        snapshots.publish(world, camera);
+        stats.stop(PerfStats.CAMERA, start);
+        stats.stop(PerfStats.TICK, tickStart);
     }
 
     /**
-     * Method to handle level up: clears enemies, shows animation, and prepares for a new wave.
+     * Turns world events into sounds and the retry button; runs on the game thread.
      */
-    public boolean isLevelingUp = false;
-
-    public void levelUp() {
-        if (isLevelingUp) return; // Prevent re-entry
-        isLevelingUp = true;
-
-        level++;
-        clearEnemies();
-        clearBosses();
-
-        JLabel levelLabel = new JLabel("Level " + level);
-        levelLabel.setFont(new Font("Arial", Font.BOLD, 64)); // Larger font size
-        levelLabel.setForeground(Color.RED);
-        levelLabel.setHorizontalAlignment(SwingConstants.CENTER);
-
-        int labelWidth = 400;
-        int labelHeight = 100;
-        int labelX = (screenWidth - labelWidth) / 2;
-        int labelY = (screenHeight - labelHeight) / 2;
-        levelLabel.setBounds(labelX, labelY - 300, labelWidth, labelHeight);
-
-        this.setLayout(null);
-        this.add(levelLabel);
-        this.revalidate();
-        this.repaint();
+    private class WorldListener implements GameWorld.Listener {
+        @Override
+        public void onBossBattleStart() {
+            music.play(BOSS_THEME);
+        }
 
+        @Override
+        public void onBossBattleEnd() {
+            music.play(GAME_MUSIC);
+        }
 
-        Timer timer = new Timer(2000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                remove(levelLabel);
-                revalidate();
-                repaint();
-                isLevelingUp = false; // Reset the flag
-                spawnNewWave();
+        @Override
+        public void onGameOver() {
+            if (retryButton != null) {
+                SwingUtilities.invokeLater(() -> retryButton.setVisible(true));
             }
-        });
-        timer.setRepeats(false);
-        timer.start();
-    }
-    /**
-     * Clears all enemies from the game.
-     */
-    private void clearEnemies() {
-        enemies.clear();
-    }
-    private void clearBosses() {
-        bosses.clear();
-    }
-
-    /**
-     * Spawns a new wave of enemies based on the current level.
-     */
-    private void spawnNewWave() {
-        int enemyCount = level * 2; // Increase enemy count with each level
-        for (int i = 0; i < enemyCount; i++) {
-            spawnNewEnemy();
         }
-    }
 
-    /**
-     * Spawns a new wave of enemies based on the current level.
-     */
-    private static int boss_wave_enemy_count = 1;
-    private void spawnNewWaveBoss() {
-        int enemyCount = boss_wave_enemy_count * 3; // Increase enemy count with each level
-        for (int i = 0; i < enemyCount; i++) {
-            spawnNewEnemy();
+        @Override
+        public void onEnemySpawned(int x, int y) {
+            playEffect(spawnSound, x, 0.6f, 1);
         }
-    }
-
-    // Helper method to parse time (e.g., "2:45") to seconds
-    private long parseTimeToSeconds(String time) {
-        String[] parts = time.replace("Longest Time: ", "").split(":");
-        long minutes = Long.parseLong(parts[0]);
-        long seconds = Long.parseLong(parts[1]);
-        return minutes * 60 + seconds;
-    }
 
-    private void restartGame() {
-        gameOver = false;
-        bossBattleActive = false;
-        level = 0;
-        boss_battle_count = 0;
-        retryButton.setVisible(false);
-        playerX = (maxScreenCol * tileSize) / 2 - tileSize / 2;
-        playerY = (maxScreenRow * tileSize) / 2 - tileSize / 2;
-        enemies.clear();
-        bosses.clear();
-        stopSound(1);
-        playSound(0);
-
-        startTime = System.currentTimeMillis();
-        elapsedTime = 0;
-        formattedTime = "0:00";
-        level = 0;
-
-        if (longestTime == null || longestTime.isEmpty()) {
-            longestTime = "0:00";
+        @Override
+        public void onBossSpawned(int x, int y) {
+            playEffect(bossSpawnSound, x, 1f, 2);
         }
 
-        System.out.println("Game restarted.");
-    }
-
-    /**
-     * Initiates a boss battle when the player reaches a level that is divisible by 5.
-     */
-
-    private boolean bossBattleActive = false;
-    private void bossBattle() {
-        if (bossBattleActive) return; // Prevent duplicate triggers
-        bossBattleActive = true;
-        bossBattleStartTime = System.currentTimeMillis();
-
-
-        JLabel bossLabel = new JLabel("Boss Battle!");
-        bossLabel.setFont(new Font("Times Roman", Font.BOLD, 80)); // Large font size for emphasis
-        bossLabel.setForeground(Color.RED);
-        bossLabel.setHorizontalAlignment(SwingConstants.CENTER);
-
-        int labelWidth = 600;
-        int labelHeight = 100;
-        int labelX = (screenWidth - labelWidth) - 290;
-        int labelY = (screenHeight - labelHeight - 380);
-        bossLabel.setBounds(labelX, labelY - 300, labelWidth, labelHeight);
-
-        this.setLayout(null);
-        this.add(bossLabel);
-        this.revalidate();
-        this.repaint();
+        @Override
+        public void onEnemyHit(int x, int y) {
+            playEffect(hitSound, x, 0.4f, 0);
+        }
 
-        Timer timer = new Timer(1000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                remove(bossLabel);
-                revalidate();
-                repaint();
-                // Start boss fight or special enemy spawn logic here
-                spawnBossEnemy();
+        @Override
+        public void onRewind(long tick) {
+            music.play(world.isBossBattleActive() ? BOSS_THEME : GAME_MUSIC);
+            if (retryButton != null) {
+                SwingUtilities.invokeLater(() -> retryButton.setVisible(false));
             }
-        });
-        timer.setRepeats(false);
-        timer.start();
-    }
-
-    /**
-     * Spawns a boss enemy. Customize this as needed for your game.
-     */
-    private void spawnBossEnemy() {
-        int newX;
-        int newY;
-        int safeDistance = 5;
-
-        do {
-            newX = (int) (Math.random() * (maxScreenCol - 2) + 1) * tileSize;
-            newY = (int) (Math.random() * (maxScreenRow - 2) + 1) * tileSize;
-
-        } while (map[newY / tileSize][newX / tileSize] == 1 ||
-                isOccupiedByEnemy(newX, newY) ||
-                Math.abs(playerX - newX) < safeDistance * tileSize ||
-                Math.abs(playerY - newY) < safeDistance * tileSize);
-
-        // Create a new Boss instance at the generated coordinates
-        Boss boss = new Boss(newX, newY, 2, tileSize, enemies);
-        bosses.add(boss);
-
-        // Print a confirmation message (optional)
-        System.out.println("Boss spawned at (" + newX + ", " + newY + ")");
-
-        // Any additional logic to set up the boss battle can go here
-    }
-
-    public void spawnNewEnemy() {
-        int newX;
-        int newY;
-        int safeDistance = 5; // Minimum distance from the player to spawn an enemy (in tiles)
-
-        do {
-            // Generate random coordinates for the enemy
-            newX = (int) (Math.random() * (maxScreenCol - 2) + 1) * tileSize;
-            newY = (int) (Math.random() * (maxScreenRow - 2) + 1) * tileSize;
-
-            // Check if the enemy is far enough from the player
-        } while (map[newY / tileSize][newX / tileSize] == 1 ||
-                isOccupiedByEnemy(newX, newY) ||
-                Math.abs(playerX - newX) < safeDistance * tileSize ||
-                Math.abs(playerY - newY) < safeDistance * tileSize);
-
-        // Create and add the new enemy to the list
-        Enemy newEnemy = new Enemy(newX, newY, 2, tileSize);
-        enemies.add(newEnemy);
-    }
+        }
 
-    private boolean isOccupiedByEnemy(int x, int y) {
-        for (Enemy enemy : enemies) {
-            if (enemy.x == x && enemy.y == y) {
-                return true;
+        @Override
+        public void onRestart() {
+            music.play(GAME_MUSIC);
+            if (retryButton != null) {
+                SwingUtilities.invokeLater(() -> retryButton.setVisible(false));
             }
+            System.out.println("Game restarted.");
         }
-        return false;
-    }
-
-    private boolean isCollidingWithObstacle(int x, int y) {
-        return x >= 0 && y >= 0 && x < map[0].length && y < map.length && map[y][x] == 1;
-    }
-
-    private boolean isCollidingWithEntity(int x1, int y1, int x2, int y2) {
-        return x1 < x2 + tileSize && x1 + tileSize > x2 &&
-                y1 < y2 + tileSize && y1 + tileSize > y2;
     }
 
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-
-        // Set the background color to black for contrast
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, screenWidth, screenHeight);
-
-        if (gameOver) {
-            // Draw "GAME OVER" text with a shadow for better readability
-            g.setColor(Color.BLACK);
-            g.setFont(new Font("Arial", Font.BOLD, 30));
-            g.drawString("GAME OVER", screenWidth / 2 - 105, screenHeight / 2 + 2); // Shadow offset
-            g.setColor(Color.RED);
-            g.drawString("GAME OVER", screenWidth / 2 - 100, screenHeight / 2);
-
-            // Draw the longest time with a shadow
-            g.setFont(new Font("Arial", Font.PLAIN, 20));
-            g.drawString(longestTime + " -- Level: " + level, screenWidth / 2 - 140, screenHeight / 2 + 40);
-
-            // Draw Level
-        } else {
-            // Draw the map with a white background and black borders for contrast
-            int scaledTileSize = tileSize;
-            for (int row = 0; row < maxScreenRow; row++) {
-                for (int col = 0; col < maxScreenCol; col++) {
-                    int x = col * scaledTileSize - camera.getX();
-                    int y = row * scaledTileSize - camera.getY();
-
-                    // Check if the tile is within the visible screen area
-                    if (x + scaledTileSize > 0 && x < screenWidth && y + scaledTileSize > 0 && y < screenHeight) {
-                        // Set the tile color to white and add a border
-                        g.setColor(Color.WHITE);
-                        g.fillRect(x, y, scaledTileSize, scaledTileSize);
-                        g.setColor(Color.BLACK);
-                        g.drawRect(x, y, scaledTileSize, scaledTileSize);
-                    }
-                }
-            }
-
-            // Draw the timer with a drop shadow
-            g.setColor(Color.red);
-            g.setFont(new Font("Arial", Font.BOLD, 40));
-            g.drawString("Time: " + formattedTime, screenWidth / 2 - 100, 80);
-
-            // Draw the player with a slight shadow for a 3D effect
-            drawPlayer(g);
-
-            // Draw the enemies with a subtle shadow for enhanced visibility
-            drawEnemies(g);
-
-            // Draw the boss
-            drawBoss(g);
-
-            for (Particle particle : particles) {
-                if (particle.isAlive()) {
-                    particle.draw(g);
-                }
-            }
-            particles.removeIf(particle -> !particle.isAlive()); // Remove expired particles
-        }
-    }
-
-    public void drawPlayer(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
-        // Define the shadow color with a higher opacity for better visibility
-        Color shadowColor = new Color(0, 0, 0, 0); // Dark shadow color with partial transparency
-        int shadowOffsetX = -14; // Increased horizontal offset for a larger shadow
-        int shadowOffsetY = -13; // Increased vertical offset for a larger shadow
-
-        int adjustedX = playerX - camera.getX() + shadowOffsetX;
-        int adjustedY = playerY - camera.getY() + shadowOffsetY;
-
-        // Draw shadow using a gradient for a smoother, rounded effect
-        g2d.setPaint(new GradientPaint(
-                adjustedX, adjustedY, shadowColor,
-                adjustedX + (int) (tileSize * 1.5), adjustedY + (int) (tileSize * 1.5), new Color(0, 0, 0, 0)
-        ));
-        g2d.fillRoundRect(adjustedX, adjustedY, (int) (tileSize * 1.5), (int) (tileSize * 1.5), 50, 50);
-
-        // Draw the player on top of the shadow
-        g.setColor(Color.BLACK);
-        g.fillRect(playerX - camera.getX(), playerY - camera.getY(), tileSize, tileSize);
-    }
-
-    public void drawEnemies(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
-        for (Enemy enemy : enemies) {
-            // Define the shadow color with a higher opacity for better visibility
-            Color shadowColor = new Color(0, 0, 0, 0); // Dark shadow color with partial transparency
-            int shadowOffsetX = -14; // Increased horizontal offset for a larger shadow
-            int shadowOffsetY = -13; // Increased vertical offset for a larger shadow
-
-            int adjustedX = enemy.x - camera.getX() + shadowOffsetX;
-            int adjustedY = enemy.y - camera.getY() + shadowOffsetY;
-
-            // Draw shadow using a gradient for a smoother, rounded effect
-            g2d.setPaint(new GradientPaint(
-                    adjustedX, adjustedY, shadowColor,
-                    adjustedX + (int) (tileSize * 1.5), adjustedY + (int) (tileSize * 1.5), new Color(0, 0, 0, 0)
-            ));
-            g2d.fillRoundRect(adjustedX, adjustedY, (int) (tileSize * 1.5), (int) (tileSize * 1.5), 50, 50);
-
-            // Draw the enemy on top of the shadow
-            g.setColor(Color.darkGray);
-            g.fillRect(enemy.x - camera.getX(), enemy.y - camera.getY(), tileSize, tileSize);
-        }
-    }
-
-    public void drawBoss(Graphics g) {
-        for (Boss boss : bosses) {
-            int adjustedX = boss.x - camera.getX();
-            int adjustedY = boss.y - camera.getY();
-            int bossSize = (int) (tileSize * 1.5);
-
-            // Draw the boss body with black and dark purple colors
-            g.setColor(new Color(0, 0, 0)); // Black for part of the boss body
-            g.fillRoundRect(adjustedX, adjustedY, bossSize, bossSize, 50, 50);
-
-            // Add a dark purple section
-            g.setColor(new Color(50, 0, 50)); // Dark purple for another part of the boss body
-            g.fillRoundRect(adjustedX, adjustedY, bossSize, bossSize / 2, 50, 50); // Top half in dark purple
-
-            // Draw glowing white eyes for intimidation
-            g.setColor(Color.white);
-            g.fillOval(adjustedX + (int) (bossSize * 0.3), adjustedY + (int) (bossSize * 0.4), bossSize / 6, bossSize / 6);
-            g.fillOval(adjustedX + (int) (bossSize * 0.6), adjustedY + (int) (bossSize * 0.4), bossSize / 6, bossSize / 6);
-
-            // Add a black outline to highlight the boss
-            g.setColor(Color.BLACK);
-            g.drawRoundRect(adjustedX, adjustedY, bossSize, bossSize, 50, 50);
-
+        if (canvas == null) {
+            renderer.render((Graphics2D) g, renderAlpha);
         }
     }
 }
-
-
-
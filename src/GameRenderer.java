@@ -0,0 +1,140 @@
+import java.awt.*;
+
+/**
+ * GameRenderer draws one frame of a GameWorld into any Graphics2D. It is shared by the Swing fallback
+ * (GamePanel.paintComponent) and the active rendering backend (GameCanvas), so both show the same picture.
+ * It only reads the latest RenderSnapshot, never the live world, so it can run on any thread.
+ */
+public class GameRenderer {
+    private final SnapshotBuffer snapshots;
+    private final int tileSize;
+    private final int screenWidth;
+    private final int screenHeight;
+    private final TileMapRenderer tileMapRenderer; // Cached map layer
+    private final SpriteCache sprites; // Pre-rendered player, enemy and boss images
+    private final Hud hud; // Timer, banners and game over screen
+    private final ParticleRenderer particleRenderer = new ParticleRenderer();
+    private PerfStats stats = new PerfStats(); // Disabled unless shared with the game's stats
+    private PerfOverlay overlay = new PerfOverlay(stats);
+
+    public GameRenderer(SnapshotBuffer snapshots, int tileSize, int screenWidth, int screenHeight) {
+        this.snapshots = snapshots;
+        this.tileSize = tileSize;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.tileMapRenderer = new TileMapRenderer(tileSize);
+        this.sprites = new SpriteCache(tileSize);
+        this.hud = new Hud(screenWidth, screenHeight);
+    }
+
+    /**
+     * Draws a retry button at the given bounds while the game is over.
+     */
+    public void setRetryBounds(Rectangle bounds) {
+        hud.setRetryBounds(bounds);
+    }
+
+    /**
+     * Times the rendering phases into the stats and draws them on top of the frame while they are enabled.
+     */
+    public void setPerfStats(PerfStats stats) {
+        this.stats = stats;
+        this.overlay = new PerfOverlay(stats);
+    }
+
+    /**
+     * Draws the frame, interpolating entity and camera positions by alpha.
+     */
+    public void render(Graphics2D g, double alpha) {
+        GameEvents.Render event = new GameEvents.Render();
+        event.begin();
+        long frameStart = stats.start();
+        RenderSnapshot s = snapshots.acquire();
+        int cameraX = lerp(s.cameraPrevX, s.cameraX, alpha);
+        int cameraY = lerp(s.cameraPrevY, s.cameraY, alpha);
+
+        // Set the background color to black for contrast
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, screenWidth, screenHeight);
+
+        if (!s.gameOver) {
+            // Draw the visible part of the cached map layer
+            long start = stats.start();
+            tileMapRenderer.draw(g, s.map, cameraX, cameraY, screenWidth, screenHeight);
+            stats.stop(PerfStats.MAP, start);
+
+            // Draw the player
+            start = stats.start();
+            drawPlayer(g, s, alpha, cameraX, cameraY);
+
+            // Draw the enemies
+            drawEnemies(g, s, alpha, cameraX, cameraY);
+
+            // Draw the boss
+            drawBoss(g, s, alpha, cameraX, cameraY);
+            stats.stop(PerfStats.ENTITIES, start);
+
+            // Draw the particles
+            start = stats.start();
+            particleRenderer.draw(g, s.particles, alpha, cameraX, cameraY);
+            stats.stop(PerfStats.PARTICLES, start);
+        }
+
+        // Timer, banners or the game over screen on top
+        long hudStart = stats.start();
+        hud.draw(g, s);
+        stats.stop(PerfStats.HUD, hudStart);
+        stats.stop(PerfStats.FRAME, frameStart);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = s.tick;
+            event.enemies = s.enemyCount;
+            event.particles = s.particles.size();
+            event.commit();
+        }
+
+        if (stats.isEnabled()) {
+            overlay.draw(g, s);
+        }
+    }
+
+    public void drawPlayer(Graphics2D g, RenderSnapshot s, double alpha, int cameraX, int cameraY) {
+        int x = lerp(s.playerPrevX, s.playerX, alpha);
+        int y = lerp(s.playerPrevY, s.playerY, alpha);
+        g.drawImage(sprites.get(SpriteCache.PLAYER, g), x - cameraX, y - cameraY, null);
+    }
+
+    public void drawEnemies(Graphics2D g, RenderSnapshot s, double alpha, int cameraX, int cameraY) {
+        Image sprite = sprites.get(SpriteCache.ENEMY, g);
+        for (int i = 0, n = s.enemyCount; i < n; i++) {
+            int x = lerp(s.enemyPrevX[i], s.enemyX[i], alpha);
+            int y = lerp(s.enemyPrevY[i], s.enemyY[i], alpha);
+            g.drawImage(sprite, x - cameraX, y - cameraY, null);
+        }
+    }
+
+    public void drawBoss(Graphics2D g, RenderSnapshot s, double alpha, int cameraX, int cameraY) {
+        Image sprite = sprites.get(SpriteCache.BOSS, g);
+        for (int i = 0, n = s.bossCount; i < n; i++) {
+            int x = lerp(s.bossPrevX[i], s.bossX[i], alpha);
+            int y = lerp(s.bossPrevY[i], s.bossY[i], alpha);
+            g.drawImage(sprite, x - cameraX, y - cameraY, null);
+        }
+    }
+
+    /**
+     * Linear interpolation between the previous and current tick position.
+     */
+    private static int lerp(int previous, int current, double alpha) {
+        return (int) Math.round(previous + (current - previous) * alpha);
+    }
+
+    /**
+     * Formats a duration in seconds as m:ss.
+     */
+    static String formatTime(long totalSeconds) {
+        long minutes = totalSeconds / 60;
+        long seconds = totalSeconds % 60;
+        return String.format("%d:%02d", minutes, seconds);
+    }
+}
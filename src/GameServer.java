@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameServer runs the authoritative GameWorld and streams it to GameClients over UDP. After every tick it
+ * captures a NetState and sends each client a snapshot delta-encoded against the last state that client
+ * acknowledged, so a client that keeps up receives a few bits per moving entity, and one that lost
+ * packets automatically gets a larger delta or, after HISTORY ticks, a full snapshot. Clients with the
+ * same baseline share one encoding, so the cost per client is mostly the datagrams themselves.
+ * The world has a single player: the first client to connect controls it and the others watch; when the
+ * controlling client leaves, the longest connected one takes over. Everything runs on one thread and the
+ * channel is never blocked on.
+ *
+ * Usage: java GameServer [port]
+ * -Dgame.levels, -Dgame.worldCols and -Dgame.worldRows select the map as for the game; the clients must
+ * have the same level files. -Dgame.netLatency, -Dgame.netJitter (milliseconds) and -Dgame.netLoss
+ * (percent) simulate a network on the server's outgoing datagrams.
+ */
+public class GameServer implements Runnable {
+    static final int DEFAULT_PORT = 7777;
+    private static final int HISTORY = 64; // Recent states kept as delta baselines; a power of two
+    private static final long CLIENT_TIMEOUT_NANOS = 5_000_000_000L; // Clients silent this long are dropped
+
+    /**
+     * A connected client, identified by its address.
+     */
+    static class Client {
+        final SocketAddress address;
+        int ackedTick = -1; // Latest state the client decoded, the baseline of its next snapshot
+        int inputSequence = -1; // Sequence of the latest input, older ones arriving late are ignored
+        int buttons; // Buttons held in the latest input
+        int tapped; // Buttons held in any input since the last tick, so short taps are not lost
+        long lastHeard;
+
+        Client(SocketAddress address) {
+            this.address = address;
+        }
+    }
+
+    private final GameWorld world;
+    private final NetLink link;
+    private final String levels; // Level files the clients load, "" for the generated map
+    private final long tickNanos;
+    private volatile boolean running;
+
+    private final Map<SocketAddress, Client> clientsByAddress = new HashMap<>();
+    private Client[] clients = new Client[8]; // In order of connection
+    private int clientCount;
+    private SessionHost.Controller controller; // Drives the player instead of the owner when set, e.g. a bot
+    private final InputState input = new InputState();
+
+    private final NetState[] history = new NetState[HISTORY]; // States by tick modulo HISTORY
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final BitWriter writer = new BitWriter();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+
+    // Snapshots encoded this tick, one per baseline that some client needed
+    private int encodedCount;
+    private int[] encodedBaseline = new int[4];
+    private byte[][] encodedData = new byte[4][];
+    private int[] encodedLength = new int[4];
+
+    private long snapshotsSent;
+    private long snapshotBytes;
+    private long sendNanos; // Spent capturing, encoding and sending snapshots
+
+    /**
+     * @param levels Level files of the world as given to LevelFile.openAll(), "" for the generated map
+     */
+    public GameServer(GameWorld world, NetLink link, String levels, int ticksPerSecond) {
+        this.world = world;
+        this.link = link;
+        this.levels = levels;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        for (int i = 0; i < HISTORY; i++) {
+            history[i] = new NetState();
+        }
+    }
+
+    public void setController(SessionHost.Controller controller) {
+        this.controller = controller;
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    public long getSnapshotsSent() {
+        return snapshotsSent;
+    }
+
+    /**
+     * Bytes of encoded snapshots sent, without datagram headers.
+     */
+    public long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * Real time spent capturing, encoding and sending snapshots, i.e. the cost of the clients.
+     */
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    /**
+     * The state sent for a recent tick, or null if it is no longer kept.
+     */
+    NetState getState(int tick) {
+        NetState state = history[tick & (HISTORY - 1)];
+        return state.tick == tick ? state : null;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Runs ticks at the tick rate on the calling thread until stop() is called, handling client datagrams
+     * as they arrive between ticks.
+     */
+    @Override
+    public void run() {
+        running = true;
+        long nextTick = System.nanoTime();
+        while (running) {
+            try {
+                tick();
+                nextTick += tickNanos;
+                long wait;
+                while ((wait = nextTick - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(Math.min(wait, 1_000_000L)); // Wake up for datagrams the simulation holds
+                    receive();
+                    link.flush();
+                }
+                if (-wait > tickNanos) {
+                    nextTick = System.nanoTime(); // More than a tick behind: drop the backlog
+                }
+            } catch (IOException e) {
+                System.err.println("Network error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Handles waiting datagrams, advances the world by one tick and sends every client its snapshot.
+     */
+    public void tick() throws IOException {
+        receive();
+        if (controller != null) {
+            controller.control(world, input);
+        } else {
+            Client owner = clientCount > 0 ? clients[0] : null;
+            input.setButtons(owner != null ? owner.buttons | owner.tapped : 0);
+            if (owner != null) {
+                owner.tapped = 0;
+            }
+        }
+        world.applyInput(input);
+        world.step(1);
+
+        long start = System.nanoTime();
+        NetState state = history[(int) world.getClock().getTick() & (HISTORY - 1)];
+        state.capture(world);
+        encodedCount = 0;
+        for (int i = 0; i < clientCount; i++) {
+            sendSnapshot(clients[i], state, i == 0 && controller == null);
+        }
+        dropSilentClients();
+        link.flush();
+        sendNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Handles all datagrams waiting on the channel.
+     */
+    public void receive() throws IOException {
+        SocketAddress from;
+        while ((from = link.receive(receiveBuffer.clear())) != null) {
+            receiveBuffer.flip();
+            try {
+                handle(from, receiveBuffer);
+            } catch (BufferUnderflowException e) {
+                // Truncated or foreign datagram; ignore it
+            }
+        }
+    }
+
+    private void handle(SocketAddress from, ByteBuffer packet) throws IOException {
+        byte type = packet.get();
+        Client client = clientsByAddress.get(from);
+        if (type == NetProtocol.CONNECT) {
+            if (packet.getInt() != NetProtocol.VERSION) {
+                return;
+            }
+            if (client == null) {
+                client = new Client(from);
+                clientsByAddress.put(from, client);
+                if (clientCount == clients.length) {
+                    clients = Arrays.copyOf(clients, clientCount * 2);
+                }
+                clients[clientCount++] = client;
+                System.out.println("Client " + from + " connected, " + clientCount + " connected");
+            }
+            client.lastHeard = System.nanoTime();
+            sendWelcome(client); // Again for every CONNECT, in case the previous welcome was lost
+            return;
+        }
+        if (client == null) {
+            return;
+        }
+        client.lastHeard = System.nanoTime();
+        if (type == NetProtocol.INPUT) {
+            int sequence = packet.getInt();
+            int ackedTick = packet.getInt();
+            int buttons = packet.getInt();
+            if (sequence > client.inputSequence) {
+                client.inputSequence = sequence;
+                client.buttons = buttons;
+                client.tapped |= buttons;
+            }
+            if (ackedTick > client.ackedTick && getState(ackedTick) != null) {
+                client.ackedTick = ackedTick;
+            }
+        } else if (type == NetProtocol.DISCONNECT) {
+            remove(client);
+        }
+    }
+
+    private void sendWelcome(Client client) throws IOException {
+        ByteBuffer packet = sendBuffer.clear();
+        packet.put(NetProtocol.WELCOME);
+        packet.putInt(NetProtocol.VERSION);
+        packet.putInt(world.tileSize);
+        packet.putInt((int) (1_000_000_000L / tickNanos));
+        packet.putInt(world.maxCol);
+        packet.putInt(world.maxRow);
+        NetProtocol.putString(packet, levels);
+        link.send(packet.flip(), client.address);
+    }
+
+    private void sendSnapshot(Client client, NetState state, boolean owner) throws IOException {
+        int baselineTick = client.ackedTick;
+        NetState baseline = baselineTick >= 0 && state.tick - baselineTick < HISTORY ? getState(baselineTick) : null;
+        if (baseline == null) {
+            baseline = NetState.EMPTY;
+            baselineTick = -1;
+        }
+        int encoded = encode(state, baseline, baselineTick);
+        byte[] data = encodedData[encoded];
+        int length = encodedLength[encoded];
+        int fragments = Math.max(1, (length + NetProtocol.MAX_FRAGMENT - 1) / NetProtocol.MAX_FRAGMENT);
+        if (fragments > NetProtocol.MAX_FRAGMENTS) {
+            System.err.println("Snapshot of " + length + " bytes is too large to send");
+            return;
+        }
+        for (int i = 0; i < fragments; i++) {
+            int offset = i * NetProtocol.MAX_FRAGMENT;
+            ByteBuffer packet = sendBuffer.clear();
+            packet.put(NetProtocol.SNAPSHOT);
+            packet.putInt(state.tick);
+            packet.putInt(baselineTick);
+            packet.put((byte) i);
+            packet.put((byte) fragments);
+            packet.put((byte) (owner ? NetProtocol.FLAG_OWNER : 0));
+            packet.put(data, offset, Math.min(NetProtocol.MAX_FRAGMENT, length - offset));
+            link.send(packet.flip(), client.address);
+        }
+        snapshotsSent++;
+        snapshotBytes += length;
+    }
+
+    /**
+     * Returns the index of the state's encoding against the baseline, encoding it on first use this tick.
+     */
+    private int encode(NetState state, NetState baseline, int baselineTick) {
+        for (int i = 0; i < encodedCount; i++) {
+            if (encodedBaseline[i] == baselineTick) {
+                return i;
+            }
+        }
+        writer.clear();
+        codec.write(state, baseline, writer);
+        writer.flush();
+
+        if (encodedCount == encodedBaseline.length) {
+            encodedBaseline = Arrays.copyOf(encodedBaseline, encodedCount * 2);
+            encodedData = Arrays.copyOf(encodedData, encodedCount * 2);
+            encodedLength = Arrays.copyOf(encodedLength, encodedCount * 2);
+        }
+        int index = encodedCount++;
+        if (encodedData[index] == null || encodedData[index].length < writer.length()) {
+            encodedData[index] = new byte[Math.max(writer.length(), 2 * NetProtocol.MAX_PACKET)];
+        }
+        System.arraycopy(writer.getData(), 0, encodedData[index], 0, writer.length());
+        encodedBaseline[index] = baselineTick;
+        encodedLength[index] = writer.length();
+        return index;
+    }
+
+    private void dropSilentClients() {
+        long now = System.nanoTime();
+        for (int i = clientCount - 1; i >= 0; i--) {
+            if (now - clients[i].lastHeard > CLIENT_TIMEOUT_NANOS) {
+                System.out.println("Client " + clients[i].address + " timed out");
+                remove(clients[i]);
+            }
+        }
+    }
+
+    private void remove(Client client) {
+        clientsByAddress.remove(client.address);
+        for (int i = 0; i < clientCount; i++) {
+            if (clients[i] == client) {
+                // Keep the connection order, so the next owner is the longest connected client
+                System.arraycopy(clients, i + 1, clients, i, clientCount - i - 1);
+                clients[--clientCount] = null;
+                break;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int ticksPerSecond = Integer.getInteger("game.tps", 60);
+        String levels = System.getProperty("game.levels", "");
+        try {
+            GameWorld world = HeadlessRunner.createWorld(new TickClock(ticksPerSecond), System.nanoTime(),
+                    Integer.getInteger("game.worldCols", 20), Integer.getInteger("game.worldRows", 20), levels);
+            world.setParticleCapacity(0); // Particles are not sent; clients only see positions
+            NetLink link = new NetLink(DatagramChannel.open().bind(new InetSocketAddress(port)));
+            link.simulate(Integer.getInteger("game.netLatency", 0), Integer.getInteger("game.netJitter", 0),
+                    Integer.getInteger("game.netLoss", 0) / 100.0, System.nanoTime());
+            System.out.println("Serving on port " + port);
+            new GameServer(world, link, levels, ticksPerSecond).run();
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,1394 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * GameWorld holds the complete game state and rules: the player, enemies, bosses, map,
+ * level and boss battle progression, and the spawn timers.
+ * It has no dependency on AWT or Swing and reads time only from its TickClock, so it can be
+ * stepped headless and as fast as the CPU allows.
+ */
+public class GameWorld {
+
+    /**
+     * Receives notifications about game events, e.g. to drive sounds and on-screen messages.
+     * Callbacks are invoked on the thread that steps the world.
+     */
+    public interface Listener {
+        default void onLevelUp(int level) {
+        }
+
+        default void onBossBattleStart() {
+        }
+
+        default void onBossBattleEnd() {
+        }
+
+        default void onGameOver() {
+        }
+
+        default void onRestart() {
+        }
+
+        default void onEnemySpawned(int x, int y) {
+        }
+
+        default void onBossSpawned(int x, int y) {
+        }
+
+        /**
+         * A boss shoved an enemy at (x, y) aside.
+         */
+        default void onEnemyHit(int x, int y) {
+        }
+
+        /**
+         * No cell was free for an enemy or boss, so the spawn was skipped.
+         */
+        default void onSpawnFailed() {
+        }
+
+        /**
+         * The world went back to an earlier tick.
+         */
+        default void onRewind(long tick) {
+        }
+    }
+
+    private static final double SLOW_DOWN_FACTOR = 0.8;
+    private static final double CIRCLE_RADIUS = 70; // Circle Radius for Circling Mechanic
+    private static final int PARALLEL_CHUNK = 1024; // Enemies per fork-join task
+    private static final int DETOUR_TICKS = 30; // How long to follow the flow field after hitting a wall
+    private static final int PARTICLE_CAPACITY = 32768;
+    private static final int RESIDENT_CHUNK_RADIUS = 3; // Map chunks kept loaded around the player
+    private static final long DEFAULT_SPAWN_INTERVAL = 10000;
+    private static final int SAFE_DISTANCE = 5; // Minimum distance from the player to spawn an enemy (in tiles)
+    private static final int WAVE_SPACING = 2; // Minimum distance between enemies of a wave (in tiles)
+    private static final int[] NO_ZONES = new int[0];
+    private static final int REWIND_SECONDS = 3; // How far before a game over a rewind returns to, at least
+    private static final int STATE_HEADER_BYTES = 137; // Bytes writeState() needs besides the entities
+    static final int STATE_LONGEST_TIME_OFFSET = 56; // Where writeState() puts longestTime
+
+    // Map and tile properties
+    final int tileSize;
+    int maxCol; // Number of map tiles horizontally
+    int maxRow; // Number of map tiles vertically
+    TileMap map; // Chunked obstacle map
+    private final LevelFile[] levels; // Designed levels, switched on level up; empty for the generated map
+    private LevelFile currentLevel; // Level the map comes from, or null
+    private int levelFileIndex;
+    private int residentChunkX = -1; // Chunk the resident area was last centred on
+    private int residentChunkY = -1;
+
+    private final TickClock clock;
+    private final RestorableRandom random;
+    private final long entitySeed; // Base seed for the per-entity random streams
+    private long spawnCount; // Number of entities spawned, mixed into their seeds
+    private Listener listener = new Listener() {
+    };
+
+    // Entities
+    final Player player;
+    int playerSpeed = 4; // Speed of the player in pixels per tick
+    final EntityStore enemies = new EntityStore(64); // Enemy entities
+    final EntityStore bosses = new EntityStore(8); // Boss entities
+    private final SpatialHashGrid enemyGrid; // Enemies bucketed by tile, indexed like enemies
+    private final SpatialHashGrid bossGrid; // Bosses bucketed by tile, indexed like bosses
+    private final SpatialHashGrid.Neighbors neighbors = new SpatialHashGrid.Neighbors();
+    private final FlowField flowField; // Paths towards the player, followed when a wall blocks the direct move
+    private final SpawnIndex spawnIndex = new SpawnIndex(RESIDENT_CHUNK_RADIUS); // Open cells to spawn on near the player
+    private final SpawnIndex.CellTest spawnTest = this::isFreeSpawnCell;
+    private int spawnSpacing; // Spacing in tiles the current spawn keeps from other enemies
+    private long failedSpawns; // Spawns skipped because no cell was free
+    ParticleSystem particles; // Cosmetic effects for hits, spawns and boss events
+    private PerfStats stats = new PerfStats(); // Phase timings, disabled unless shared with a PerfOverlay
+
+    // Parallel enemy update: read positions from the front buffer, write to the back buffer
+    private boolean parallelEnemyUpdate = false;
+    private ForkJoinPool enemyUpdatePool = ForkJoinPool.commonPool();
+    private final ThreadLocal<SpatialHashGrid.Neighbors> taskNeighbors =
+            ThreadLocal.withInitial(SpatialHashGrid.Neighbors::new);
+
+    // Batch steering: circling moves computed in bulk with approximate trigonometry
+    private boolean fastSteering = false;
+    private final SteeringKernel steeringKernel = SteeringKernel.create();
+    private final ThreadLocal<SteeringKernel> taskSteeringKernels = ThreadLocal.withInitial(SteeringKernel::create);
+
+    // Current input, applied on the next tick
+    private int buttons; // InputState buttons held during the tick
+    private boolean restarted; // A retry restarted the run before the next tick
+
+    private WorldHistory history; // Checkpoints to rewind to, null unless enabled
+
+    // Timers, all in simulated milliseconds
+    private long startTime; // Start time of the current run
+    private long elapsedTime; // Elapsed time in seconds
+    private long longestTime; // Longest survived run in seconds
+    private long bossBattleStartTime;
+    long lastEnemySpawnTime = 0; // Timestamp for the last enemy spawn
+    long bossSpawnInterval = 30000; // Interval between boss spawns in milliseconds
+    long spawnInterval = DEFAULT_SPAWN_INTERVAL; // Interval between enemy spawns in milliseconds
+    private long waveSpawnTime = -1; // When the wave following a level up is due
+    private long bossSpawnTime = -1; // When the boss following the boss battle banner is due
+
+    // Game state
+    boolean gameOver = false; // Flag to indicate if the game has ended
+    private long gameOverTick; // Tick the last game over happened on
+    private long rewoundTick = -1; // Tick the last rewind returned to, -1 after a restart
+    private boolean isLevelingUp = false;
+    private boolean bossBattleActive = false;
+    private GameEvents.BossBattle bossBattleEvent; // Timed from the start to the end of the battle
+    private int level;
+    private int boss_battle_count = 0;
+    private int boss_wave_enemy_count = 1;
+
+    public GameWorld(TickClock clock, long seed, int tileSize, int maxCol, int maxRow) {
+        // A map that is open except for obstacles along the edges
+        this(clock, seed, tileSize, TileMap.withBorderWalls(maxCol, maxRow), new LevelFile[0]);
+    }
+
+    /**
+     * A world that plays the given levels in turn, moving on to the next one on every level up.
+     */
+    public GameWorld(TickClock clock, long seed, int tileSize, LevelFile[] levels) {
+        this(clock, seed, tileSize, levels[0].createMap(), levels);
+    }
+
+    private GameWorld(TickClock clock, long seed, int tileSize, TileMap map, LevelFile[] levels) {
+        this.clock = clock;
+        this.random = new RestorableRandom(seed);
+        this.entitySeed = FastRandom.mix(seed);
+        this.particles = new ParticleSystem(PARTICLE_CAPACITY, FastRandom.mix(~seed));
+        this.tileSize = tileSize;
+        this.maxCol = map.getCols();
+        this.maxRow = map.getRows();
+        this.map = map;
+        this.levels = levels;
+        this.enemyGrid = new SpatialHashGrid(tileSize);
+        this.bossGrid = new SpatialHashGrid(tileSize);
+        this.flowField = new FlowField(map);
+        if (levels.length > 0) {
+            applyLevelSettings(levels[0]);
+        }
+        spawnIndex.rebuild(map, levels.length > 0 ? levels[0].zones : NO_ZONES);
+        this.player = new Player(startX(), startY(), playerSpeed, tileSize);
+        centerSpawnArea();
+        this.startTime = clock.millis();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public TickClock getClock() {
+        return clock;
+    }
+
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Changes a map tile (1 = obstacle, 0 = open space).
+     */
+    public void setTile(int col, int row, int value) {
+        if (map.setTile(col, row, value)) {
+            flowField.invalidate();
+            spawnIndex.update(col, row, value == 1);
+        }
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Index of the level file being played, or -1 on the generated map.
+     */
+    public int getLevelFileIndex() {
+        return levels.length > 0 ? levelFileIndex : -1;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isBossBattleActive() {
+        return bossBattleActive;
+    }
+
+    /**
+     * Whether the level up banner is showing, i.e. the wave following the level up has not spawned yet.
+     */
+    public boolean isLevelingUp() {
+        return isLevelingUp;
+    }
+
+    /**
+     * Whether the boss battle banner is showing, i.e. the boss has not spawned yet.
+     */
+    public boolean isBossIntroActive() {
+        return bossSpawnTime >= 0;
+    }
+
+    /**
+     * Whether the rewind banner is showing, i.e. less than a second has passed since a rewind.
+     */
+    public boolean isRewindBannerActive() {
+        return rewoundTick >= 0 && clock.getTick() - rewoundTick < clock.getTicksPerSecond();
+    }
+
+    /**
+     * Elapsed time of the current run in whole seconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Longest survived run in whole seconds.
+     */
+    public long getLongestTime() {
+        return longestTime;
+    }
+
+    /**
+     * Number of enemy and boss spawns skipped because no cell was free.
+     */
+    public long getFailedSpawns() {
+        return failedSpawns;
+    }
+
+    /**
+     * Number of candidate cells tested by all spawns so far.
+     */
+    public long getSpawnAttempts() {
+        return spawnIndex.getAttempts();
+    }
+
+    /**
+     * Switches enemy movement between the in-place sequential update and the double-buffered parallel update.
+     * In parallel mode every enemy sees its neighbours' positions from the start of the tick and uses its own
+     * random stream, so results do not depend on the number of threads, but differ from the sequential mode.
+     */
+    public void setParallelEnemyUpdate(boolean parallelEnemyUpdate) {
+        this.parallelEnemyUpdate = parallelEnemyUpdate;
+    }
+
+    /**
+     * Switches the circling move between the exact per-enemy math and the batched SteeringKernel,
+     * which uses per-enemy random streams and approximate sine/cosine.
+     */
+    public void setFastSteering(boolean fastSteering) {
+        this.fastSteering = fastSteering;
+    }
+
+    /**
+     * Replaces the particle pool with an empty one of the given capacity, e.g. 0 for worlds that are never
+     * drawn; particles are cosmetic, so this does not change the game. Call it before the world is rendered.
+     */
+    public void setParticleCapacity(int capacity) {
+        particles = new ParticleSystem(capacity, FastRandom.mix(~entitySeed));
+    }
+
+    /**
+     * Times the player, enemy, boss and spawn phases of each tick into the stats while they are enabled.
+     */
+    public void setPerfStats(PerfStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Keeps checkpoints and input in the history after every tick, so the world can be rewound, e.g. after
+     * a game over. Costs a copy of the world every history interval.
+     */
+    public void setHistory(WorldHistory history) {
+        this.history = history;
+    }
+
+    public WorldHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Runs the parallel enemy update on the given pool instead of the common pool, e.g. a host's own pool.
+     */
+    public void setEnemyUpdatePool(ForkJoinPool enemyUpdatePool) {
+        this.enemyUpdatePool = enemyUpdatePool;
+    }
+
+    /**
+     * Applies the input of the next tick: a retry press restarts a finished game, and the held
+     * directions move the player.
+     */
+    public void applyInput(InputState input) {
+        if (gameOver && input.wasPressed(InputState.RETRY)) {
+            restart();
+            restarted = true;
+        } else if (gameOver && input.wasPressed(InputState.REWIND)) {
+            restoreCheckpoint(gameOverTick - REWIND_SECONDS * clock.getTicksPerSecond());
+        }
+        buttons = input.held();
+    }
+
+    /**
+     * Restores the newest checkpoint at or before the tick, without re-simulating up to the tick.
+     *
+     * @return false if the history holds no such checkpoint
+     */
+    public boolean restoreCheckpoint(long tick) {
+        if (history == null || !history.restore(this, tick)) {
+            return false;
+        }
+        rewoundTick = clock.getTick();
+        listener.onRewind(rewoundTick);
+        return true;
+    }
+
+    /**
+     * Goes back to exactly the given tick: restores the newest checkpoint at or before it and re-simulates the
+     * recorded input from there. The listener only hears of the rewind, not of the re-simulated ticks.
+     *
+     * @return false if the tick is not covered by the history
+     */
+    public boolean rewindTo(long tick) {
+        if (history == null) {
+            return false;
+        }
+        Listener target = listener;
+        listener = new Listener() {
+        };
+        boolean rewound;
+        try {
+            rewound = history.rewindTo(this, tick);
+        } finally {
+            listener = target;
+        }
+        if (rewound) {
+            rewoundTick = tick;
+            listener.onRewind(tick);
+        }
+        return rewound;
+    }
+
+    /**
+     * Advances the simulation by the given number of ticks.
+     */
+    public void step(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            if (history != null) {
+                history.recordInput(clock.getTick() + 1, buttons, restarted);
+            }
+            restarted = false;
+            GameEvents.Tick event = new GameEvents.Tick();
+            event.begin();
+            tick();
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = clock.getTick();
+                event.enemies = enemies.size;
+                event.bosses = bosses.size;
+                event.commit();
+            }
+            if (clock.getTick() % clock.getTicksPerSecond() == 0) {
+                commitEntityCount();
+            }
+            if (history != null && !gameOver) {
+                long start = stats.start();
+                history.recordTick(this);
+                stats.stop(PerfStats.HISTORY, start);
+            }
+        }
+    }
+
+    /**
+     * Sets the buttons of the next tick directly; used when re-simulating recorded input.
+     */
+    void setButtons(int buttons) {
+        this.buttons = buttons;
+    }
+
+    /**
+     * Bytes writeState() needs for the current world.
+     */
+    int stateBytes() {
+        return STATE_HEADER_BYTES + enemies.stateBytes() + bosses.stateBytes();
+    }
+
+    /**
+     * Writes everything the simulation needs to continue from this tick exactly as it would have:
+     * clock, progression, timers, random state, the player and the entities. The map is not written, only
+     * which level file it comes from; particles are cosmetic and left out.
+     */
+    void writeState(ByteBuffer out) {
+        out.putLong(clock.getTick());
+        out.putInt(levelFileIndex);
+        out.putInt(level);
+        out.putInt(boss_battle_count);
+        out.putInt(boss_wave_enemy_count);
+        out.putInt(playerSpeed);
+        out.putInt(buttons);
+        out.putInt(player.getX());
+        out.putInt(player.getY());
+        out.putLong(startTime);
+        out.putLong(elapsedTime);
+        out.putLong(longestTime);
+        out.putLong(bossBattleStartTime);
+        out.putLong(lastEnemySpawnTime);
+        out.putLong(bossSpawnInterval);
+        out.putLong(spawnInterval);
+        out.putLong(waveSpawnTime);
+        out.putLong(bossSpawnTime);
+        out.putLong(spawnCount);
+        out.putLong(failedSpawns);
+        out.putLong(random.getState());
+        out.put((byte) ((gameOver ? 1 : 0) | (isLevelingUp ? 2 : 0) | (bossBattleActive ? 4 : 0)));
+        enemies.writeState(out);
+        bosses.writeState(out);
+    }
+
+    /**
+     * Replaces the world's state with one written by writeState(), loading its level file if needed and
+     * rebuilding what is derived from the state: grids, flow field and resident map chunks.
+     */
+    void readState(ByteBuffer in) {
+        clock.setTick(in.getLong());
+        int levelFile = in.getInt();
+        if (levels.length > 0 && levelFile != levelFileIndex) {
+            loadLevel(levelFile);
+        }
+        level = in.getInt();
+        boss_battle_count = in.getInt();
+        boss_wave_enemy_count = in.getInt();
+        playerSpeed = in.getInt();
+        buttons = in.getInt();
+        int playerX = in.getInt();
+        player.setPosition(playerX, in.getInt());
+        startTime = in.getLong();
+        elapsedTime = in.getLong();
+        longestTime = Math.max(longestTime, in.getLong()); // A rewind does not take a record back
+        bossBattleStartTime = in.getLong();
+        lastEnemySpawnTime = in.getLong();
+        bossSpawnInterval = in.getLong();
+        spawnInterval = in.getLong();
+        waveSpawnTime = in.getLong();
+        bossSpawnTime = in.getLong();
+        spawnCount = in.getLong();
+        failedSpawns = in.getLong();
+        random.setState(in.getLong());
+        byte flags = in.get();
+        gameOver = (flags & 1) != 0;
+        isLevelingUp = (flags & 2) != 0;
+        bossBattleActive = (flags & 4) != 0;
+        restarted = false;
+
+        enemies.readState(in);
+        enemyGrid.clear();
+        for (int i = 0; i < enemies.size; i++) {
+            enemyGrid.insert(i, enemies.x[i], enemies.y[i]);
+        }
+        bosses.readState(in);
+        bossGrid.clear();
+        for (int i = 0; i < bosses.size; i++) {
+            bossGrid.insert(i, bosses.x[i], bosses.y[i]);
+        }
+        flowField.invalidate();
+        residentChunkX = -1;
+        residentChunkY = -1;
+        centerSpawnArea();
+        particles.clear();
+        if (bossBattleActive && bossBattleEvent == null) {
+            bossBattleEvent = new GameEvents.BossBattle(); // Timed from the rewind on
+            bossBattleEvent.begin();
+        } else if (!bossBattleActive) {
+            bossBattleEvent = null;
+        }
+    }
+
+    private void commitEntityCount() {
+        GameEvents.EntityCount event = new GameEvents.EntityCount();
+        if (event.shouldCommit()) {
+            event.enemies = enemies.size;
+            event.bosses = bosses.size;
+            event.particles = particles.size();
+            event.residentChunks = map.getResidentChunkCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Advances the clock by one tick and updates the game state, including player movement,
+     * enemy behavior, and level logic.
+     */
+    private void tick() {
+        clock.advance();
+        if (gameOver) {
+            return;
+        }
+        long now = clock.millis();
+
+        particles.tick();
+        long start = stats.start();
+        runScheduledSpawns(now);
+
+        // Update elapsed time and check for level progression
+        elapsedTime = (now - startTime) / 1000; // Convert to seconds
+
+        // Trigger level up every 2 minutes
+        if (!bossBattleActive) {
+            if (elapsedTime % 120 == 0 && elapsedTime != 0) {
+                levelUp();
+            }
+        }
+
+        // For 5 every level the boss battle begins
+        if (!bossBattleActive && level > 0 && level % 5 == 0) {
+            bossBattle(); // Start boss battle when the level is a valid values
+
+            // Spawns in waves for boss enemies
+            spawnNewWaveBoss();
+            boss_wave_enemy_count++;
+
+            if (boss_battle_count > 0) {
+                for (int i = 0; i < boss_battle_count; i++) {
+                    spawnBossEnemy();
+                }
+            }
+            boss_battle_count++;
+        }
+
+        // Check if the boss battle is over or if 10 seconds have passed
+        if (bossBattleActive) {
+            long timeElapsedInBossBattle = (now - bossBattleStartTime) / 1000;
+            if (timeElapsedInBossBattle >= 10) {
+                level++;
+                bossBattleActive = false;
+                if (bossBattleEvent.shouldCommit()) {
+                    bossBattleEvent.level = level - 1;
+                    bossBattleEvent.bosses = bosses.size;
+                    bossBattleEvent.enemies = enemies.size;
+                    bossBattleEvent.commit();
+                }
+                bossBattleEvent = null;
+                for (int i = 0; i < bosses.size; i++) {
+                    emitBurst(bosses.x[i], bosses.y[i], 60, ParticleSystem.PALETTE_BOSS);
+                }
+                listener.onBossBattleEnd();
+            }
+        }
+        stats.stop(PerfStats.SPAWNS, start);
+
+        // Remember last tick's positions so rendering can interpolate
+        savePreviousPositions();
+
+        // Handle player movement
+        start = stats.start();
+        handlePlayerMovement();
+        stats.stop(PerfStats.PLAYER, start);
+
+        // Re-route the flow field if the player entered another tile
+        start = stats.start();
+        int playerTileX = (player.getX() + tileSize / 2) / tileSize;
+        int playerTileY = (player.getY() + tileSize / 2) / tileSize;
+        if (flowField.update(playerTileX, playerTileY)) {
+            trimMap(playerTileX, playerTileY);
+        }
+
+        // Update enemy movement
+        handleEnemyMovement();
+        stats.stop(PerfStats.ENEMIES, start);
+
+        // Update boss movement
+        start = stats.start();
+        handleBossMovement();
+        stats.stop(PerfStats.BOSSES, start);
+
+        if (gameOver) {
+            gameOverTick = clock.getTick();
+            if (elapsedTime > longestTime) {
+                longestTime = elapsedTime;
+            }
+            listener.onGameOver();
+        }
+    }
+
+    /**
+     * Runs the spawns that were delayed behind the level up and boss battle banners.
+     */
+    private void runScheduledSpawns(long now) {
+        if (waveSpawnTime >= 0 && now >= waveSpawnTime) {
+            waveSpawnTime = -1;
+            isLevelingUp = false; // Reset the flag
+            spawnNewWave();
+        }
+        if (bossSpawnTime >= 0 && now >= bossSpawnTime) {
+            bossSpawnTime = -1;
+            // Start boss fight or special enemy spawn logic here
+            spawnBossEnemy();
+        }
+    }
+
+    private void savePreviousPositions() {
+        player.savePreviousPosition();
+        enemies.savePreviousPositions();
+        bosses.savePreviousPositions();
+    }
+
+    /**
+     * Handles player movement based on the current input.
+     */
+    private void handlePlayerMovement() {
+        int xSpeed = 0;
+        int ySpeed = 0;
+
+        if ((buttons & InputState.UP) != 0) ySpeed -= playerSpeed;
+        if ((buttons & InputState.DOWN) != 0) ySpeed += playerSpeed;
+        if ((buttons & InputState.LEFT) != 0) xSpeed -= playerSpeed;
+        if ((buttons & InputState.RIGHT) != 0) xSpeed += playerSpeed;
+
+        // Normalize diagonal movement
+        if (xSpeed != 0 && ySpeed != 0) {
+            double scale = playerSpeed / Math.sqrt(xSpeed * xSpeed + ySpeed * ySpeed);
+            xSpeed *= scale;
+            ySpeed *= scale;
+        }
+
+        player.move(xSpeed, ySpeed, map);
+    }
+
+    /**
+     * Handles enemy movement and behavior.
+     */
+    void handleEnemyMovement() {
+        if (parallelEnemyUpdate) {
+            updateEnemiesDoubleBuffered();
+        } else {
+            updateEnemiesInPlace();
+        }
+        if (gameOver) {
+            return;
+        }
+
+        // Check if 10 seconds have passed to spawn a new enemy
+        long now = clock.millis();
+        if (now - lastEnemySpawnTime >= spawnInterval) {
+            spawnNewEnemy();
+            lastEnemySpawnTime = now;
+        }
+    }
+
+    /**
+     * Moves enemies one after another; each enemy sees the already updated positions of the enemies before it.
+     */
+    private void updateEnemiesInPlace() {
+        int playerX = player.getX();
+        int playerY = player.getY();
+        int[] xs = enemies.x;
+        int[] ys = enemies.y;
+        if (fastSteering) {
+            steeringKernel.steer(enemies, 0, enemies.size, playerX, playerY, CIRCLE_RADIUS, SLOW_DOWN_FACTOR);
+        }
+
+        for (int i = 0, n = enemies.size; i < n; i++) {
+            double randomValue = fastSteering ? 0 : random.nextDouble();
+            long position = steerEnemy(i, xs, ys, randomValue, playerX, playerY, neighbors);
+            xs[i] = unpackX(position);
+            ys[i] = unpackY(position);
+            enemyGrid.move(i, xs[i], ys[i]);
+
+            // Check collision with player
+            if (isCollidingWithEntity(playerX, playerY, xs[i], ys[i])) {
+                gameOver = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves all enemies in parallel chunks, reading the current positions and writing the back buffer,
+     * then swaps the buffers and refreshes the grid.
+     */
+    private void updateEnemiesDoubleBuffered() {
+        int n = enemies.size;
+        if (n <= PARALLEL_CHUNK) {
+            steerEnemyRange(0, n);
+        } else {
+            enemyUpdatePool.invoke(new EnemyUpdateTask(0, n));
+        }
+        enemies.swapPositionBuffers();
+
+        int playerX = player.getX();
+        int playerY = player.getY();
+        int[] xs = enemies.x;
+        int[] ys = enemies.y;
+        for (int i = 0; i < n; i++) {
+            enemyGrid.move(i, xs[i], ys[i]);
+            if (isCollidingWithEntity(playerX, playerY, xs[i], ys[i])) {
+                gameOver = true;
+            }
+        }
+    }
+
+    private void steerEnemyRange(int from, int to) {
+        SpatialHashGrid.Neighbors taskLocal = taskNeighbors.get();
+        int playerX = player.getX();
+        int playerY = player.getY();
+        int[] xs = enemies.x;
+        int[] ys = enemies.y;
+        int[] nextXs = enemies.backX;
+        int[] nextYs = enemies.backY;
+        long[] rng = enemies.rng;
+        if (fastSteering) {
+            taskSteeringKernels.get().steer(enemies, from, to, playerX, playerY, CIRCLE_RADIUS, SLOW_DOWN_FACTOR);
+        }
+
+        for (int i = from; i < to; i++) {
+            double randomValue = 0;
+            if (!fastSteering) {
+                long state = FastRandom.next(rng[i]);
+                rng[i] = state;
+                randomValue = FastRandom.toDouble(state);
+            }
+            long position = steerEnemy(i, xs, ys, randomValue, playerX, playerY, taskLocal);
+            nextXs[i] = unpackX(position);
+            nextYs[i] = unpackY(position);
+        }
+    }
+
+    /**
+     * Splits the double-buffered enemy update into chunks for the fork-join pool.
+     */
+    private class EnemyUpdateTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        EnemyUpdateTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                steerEnemyRange(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EnemyUpdateTask(from, middle), new EnemyUpdateTask(middle, to));
+            }
+        }
+    }
+
+    /**
+     * Circles enemy i around the player and pushes it away from nearby enemies.
+     * Neighbour positions are read from xs/ys, which must match the grid.
+     *
+     * @param randomValue Uniform random number in [0, 1) used to vary the angle; unused with fast steering,
+     *                    where SteeringKernel already updated the angle and the desired position
+     * @return The enemy's new position, packed with packPosition()
+     */
+    private long steerEnemy(int i, int[] xs, int[] ys, double randomValue, int playerX, int playerY,
+                            SpatialHashGrid.Neighbors nearby) {
+        double[] angles = enemies.angle;
+        int enemyX = xs[i];
+        int enemyY = ys[i];
+        int speed = enemies.speed[i];
+        if (!fastSteering) {
+            // Randomize angle slightly for varied movement
+            angles[i] += randomValue * Math.PI / 8 - Math.PI / 16; // Slightly randomized angle increment
+        }
+
+        int newEnemyX;
+        int newEnemyY;
+        int tileX = (enemyX + tileSize / 2) / tileSize;
+        int tileY = (enemyY + tileSize / 2) / tileSize;
+        int[] detourTicks = enemies.detourTicks;
+        boolean detour = detourTicks[i] > 0 || flowField.needsDetour(tileX, tileY);
+        if (detourTicks[i] > 0) {
+            detourTicks[i]--;
+        }
+        if (detour) {
+            // Walls between the enemy and the player: walk around them along the flow field
+            long step = flowFieldStep(enemyX, enemyY, tileX, tileY, speed);
+            newEnemyX = unpackX(step);
+            newEnemyY = unpackY(step);
+        } else if (fastSteering) {
+            newEnemyX = enemies.desiredX[i];
+            newEnemyY = enemies.desiredY[i];
+            if (newEnemyX == enemyX && newEnemyY == enemyY) {
+                return packPosition(enemyX, enemyY);
+            }
+        } else {
+            // Calculate circular target position relative to player
+            int targetX = (int) (playerX + CIRCLE_RADIUS * Math.cos(angles[i]));
+            int targetY = (int) (playerY + CIRCLE_RADIUS * Math.sin(angles[i]));
+
+            // Calculate direction to target
+            int deltaX = targetX - enemyX;
+            int deltaY = targetY - enemyY;
+            double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+            if (distance <= 0) {
+                return packPosition(enemyX, enemyY);
+            }
+
+            // Normalize movement and apply slowdown factor
+            double moveX = (deltaX / distance) * speed * SLOW_DOWN_FACTOR;
+            double moveY = (deltaY / distance) * speed * SLOW_DOWN_FACTOR;
+
+            newEnemyX = (int) (enemyX + moveX);
+            newEnemyY = (int) (enemyY + moveY);
+        }
+
+        // Handle collision with other enemies, visiting neighbours in index order
+        enemyGrid.query(newEnemyX, newEnemyY, -1, nearby);
+        for (int k = 0; k < nearby.size(); k++) {
+            int j = nearby.get(k);
+            if (j != i) {
+                double dx = newEnemyX - xs[j];
+                double dy = newEnemyY - ys[j];
+                double distanceToOther = Math.sqrt(dx * dx + dy * dy);
+
+                if (distanceToOther < tileSize) {
+                    double moveAwayX = (enemyX - xs[j]) * 0.5;
+                    double moveAwayY = (enemyY - ys[j]) * 0.5;
+                    int pushedX = newEnemyX;
+                    int pushedY = newEnemyY;
+                    newEnemyX += moveAwayX;
+                    newEnemyY += moveAwayY;
+
+                    // Pushed into another cell: continue with the enemies after j around the new position
+                    if (!enemyGrid.sameCell(pushedX, pushedY, newEnemyX, newEnemyY)) {
+                        enemyGrid.query(newEnemyX, newEnemyY, j, nearby);
+                        k = -1;
+                    }
+                }
+            }
+        }
+
+        // Check if new position is valid
+        if (!isCollidingWithObstacle(newEnemyX / tileSize, newEnemyY / tileSize)) {
+            return packPosition(newEnemyX, newEnemyY);
+        }
+        detourTicks[i] = DETOUR_TICKS; // Stuck on a wall: find a way around it
+        return packPosition(enemyX, enemyY);
+    }
+
+    /**
+     * Moves from (x, y) towards the tile the flow field points to from (tileX, tileY). For straight moves the
+     * entity first lines up with the tile row or column, so it enters the next tile squarely and fits
+     * through one-tile gaps.
+     */
+    private long flowFieldStep(int x, int y, int tileX, int tileY, int speed) {
+        int directionX = flowField.directionX(tileX, tileY);
+        int directionY = flowField.directionY(tileX, tileY);
+        int step = Math.max(1, (int) Math.round(speed * SLOW_DOWN_FACTOR));
+        int alignedX = tileX * tileSize;
+        int alignedY = tileY * tileSize;
+
+        if (directionX != 0 && directionY == 0 && y != alignedY) {
+            return packPosition(x, y + clamp(alignedY - y, step));
+        }
+        if (directionY != 0 && directionX == 0 && x != alignedX) {
+            return packPosition(x + clamp(alignedX - x, step), y);
+        }
+        int targetX = alignedX + directionX * tileSize;
+        int targetY = alignedY + directionY * tileSize;
+        return packPosition(x + clamp(targetX - x, step), y + clamp(targetY - y, step));
+    }
+
+    private static int clamp(int delta, int limit) {
+        return Math.max(-limit, Math.min(limit, delta));
+    }
+
+    private static long packPosition(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int unpackX(long position) {
+        return (int) (position >> 32);
+    }
+
+    private static int unpackY(long position) {
+        return (int) position;
+    }
+
+    void handleBossMovement() {
+        // Boss movement logic
+        int playerX = player.getX();
+        int playerY = player.getY();
+        int[] xs = bosses.x;
+        int[] ys = bosses.y;
+        int[] speeds = bosses.speed;
+        int[] enemyXs = enemies.x;
+        int[] enemyYs = enemies.y;
+
+        for (int i = 0, n = bosses.size; i < n; i++) {
+            int bossX = xs[i];
+            int bossY = ys[i];
+
+            // Calculate direction to the player
+            int deltaX = playerX - bossX;
+            int deltaY = playerY - bossY;
+            double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+            int tileX = (bossX + tileSize / 2) / tileSize;
+            int tileY = (bossY + tileSize / 2) / tileSize;
+            boolean detour = bosses.detourTicks[i] > 0 || flowField.needsDetour(tileX, tileY);
+            if (bosses.detourTicks[i] > 0) {
+                bosses.detourTicks[i]--;
+            }
+
+            if (detour || distance > 0) {
+                int newBossX;
+                int newBossY;
+                if (detour) {
+                    // Walls between the boss and the player: walk around them along the flow field
+                    long step = flowFieldStep(bossX, bossY, tileX, tileY, speeds[i]);
+                    newBossX = unpackX(step);
+                    newBossY = unpackY(step);
+                } else {
+                    // Normalize movement and apply slowdown factor
+                    double moveX = (deltaX / distance) * speeds[i] * SLOW_DOWN_FACTOR;
+                    double moveY = (deltaY / distance) * speeds[i] * SLOW_DOWN_FACTOR;
+
+                    newBossX = (int) (bossX + moveX);
+                    newBossY = (int) (bossY + moveY);
+                }
+
+                // Handle collision with other bosses (optional)
+                if (isCollidingWithOtherBoss(i, newBossX, newBossY)) {
+                    double moveAwayX = (bossX - newBossX) * 0.5;
+                    double moveAwayY = (bossY - newBossY) * 0.5;
+                    newBossX += moveAwayX;
+                    newBossY += moveAwayY;
+                }
+
+                // Handle collision with enemies, visiting neighbours in index order
+                enemyGrid.query(newBossX, newBossY, -1, neighbors);
+                for (int k = 0; k < neighbors.size(); k++) {
+                    int j = neighbors.get(k);
+                    double dx = newBossX - enemyXs[j];
+                    double dy = newBossY - enemyYs[j];
+                    double distanceToEnemy = Math.sqrt(dx * dx + dy * dy);
+
+                    if (distanceToEnemy < tileSize) {
+                        emitBurst(enemyXs[j], enemyYs[j], 3, ParticleSystem.PALETTE_HIT);
+                        listener.onEnemyHit(enemyXs[j], enemyYs[j]);
+                        double moveAwayX = (bossX - enemyXs[j]) * 0.5;
+                        double moveAwayY = (bossY - enemyYs[j]) * 0.5;
+                        int pushedX = newBossX;
+                        int pushedY = newBossY;
+                        newBossX += moveAwayX;
+                        newBossY += moveAwayY;
+
+                        // Pushed into another cell: continue with the enemies after j around the new position
+                        if (!enemyGrid.sameCell(pushedX, pushedY, newBossX, newBossY)) {
+                            enemyGrid.query(newBossX, newBossY, j, neighbors);
+                            k = -1;
+                        }
+                    }
+                }
+
+                // Check if new position is valid
+                if (!isCollidingWithObstacle(newBossX / tileSize, newBossY / tileSize)) {
+                    xs[i] = newBossX;
+                    ys[i] = newBossY;
+                    bossGrid.move(i, newBossX, newBossY);
+                } else {
+                    bosses.detourTicks[i] = DETOUR_TICKS; // Stuck on a wall: find a way around it
+                }
+            }
+
+            // Check collision with player
+            if (isCollidingWithEntity(playerX, playerY, xs[i], ys[i])) {
+                gameOver = true;
+                return;
+            }
+        }
+    }
+
+    // Helper method to check for collisions with other bosses
+    private boolean isCollidingWithOtherBoss(int index, int newBossX, int newBossY) {
+        bossGrid.query(newBossX, newBossY, -1, neighbors);
+        for (int k = 0; k < neighbors.size(); k++) {
+            int j = neighbors.get(k);
+            if (j != index) {
+                double dx = newBossX - bosses.x[j];
+                double dy = newBossY - bosses.y[j];
+                double distanceToOther = Math.sqrt(dx * dx + dy * dy);
+                if (distanceToOther < tileSize) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handles level up: clears enemies and schedules a new wave once the level banner is gone.
+     */
+    public void levelUp() {
+        if (isLevelingUp) return; // Prevent re-entry
+        isLevelingUp = true;
+        GameEvents.LevelUp event = new GameEvents.LevelUp();
+        event.begin();
+
+        level++;
+        clearEnemies();
+        clearBosses();
+        if (levels.length > 1) {
+            loadLevel((levelFileIndex + 1) % levels.length);
+        }
+        waveSpawnTime = clock.millis() + 2000;
+        listener.onLevelUp(level);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = level;
+            event.levelFile = levels.length > 0 ? levelFileIndex : -1;
+            event.cols = maxCol;
+            event.rows = maxRow;
+            event.commit();
+        }
+    }
+
+    /**
+     * Switches to another level file: its map replaces the current one, loaded chunk by chunk from the
+     * mapped file as it is used, and the player moves to the level's start.
+     */
+    private void loadLevel(int index) {
+        levelFileIndex = index;
+        LevelFile level = levels[index];
+        map = level.createMap();
+        maxCol = map.getCols();
+        maxRow = map.getRows();
+        residentChunkX = -1;
+        residentChunkY = -1;
+        flowField.setMap(map);
+        spawnIndex.rebuild(map, level.zones);
+        applyLevelSettings(level);
+        player.setPosition(startX(), startY());
+        centerSpawnArea();
+    }
+
+    private void applyLevelSettings(LevelFile level) {
+        currentLevel = level;
+        spawnInterval = level.spawnInterval > 0 ? level.spawnInterval : DEFAULT_SPAWN_INTERVAL;
+    }
+
+    /**
+     * Clears all enemies from the game.
+     */
+    void clearEnemies() {
+        enemies.clear();
+        enemyGrid.clear();
+    }
+
+    void clearBosses() {
+        bosses.clear();
+        bossGrid.clear();
+    }
+
+    /**
+     * Spawns a new wave of enemies based on the current level.
+     */
+    private void spawnNewWave() {
+        int enemyCount = level * 2; // Increase enemy count with each level
+        if (currentLevel != null && currentLevel.waveSize > 0) {
+            enemyCount = currentLevel.waveSize;
+        }
+        spawnWave(enemyCount);
+    }
+
+    /**
+     * Spawns a new wave of enemies based on the number of boss battles so far.
+     */
+    private void spawnNewWaveBoss() {
+        int enemyCount = boss_wave_enemy_count * 3; // Increase enemy count with each level
+        spawnWave(enemyCount);
+    }
+
+    /**
+     * Resets the run; the longest time survives restarts.
+     */
+    public void restart() {
+        gameOver = false;
+        rewoundTick = -1;
+        bossBattleActive = false;
+        bossBattleEvent = null; // The battle did not end, so it is not recorded
+        isLevelingUp = false;
+        waveSpawnTime = -1;
+        bossSpawnTime = -1;
+        level = 0;
+        boss_battle_count = 0;
+        if (levelFileIndex != 0) {
+            loadLevel(0);
+        }
+        player.setPosition(startX(), startY());
+        centerSpawnArea();
+        clearEnemies();
+        clearBosses();
+        particles.clear();
+
+        startTime = clock.millis();
+        elapsedTime = 0;
+        listener.onRestart();
+    }
+
+    /**
+     * Initiates a boss battle when the player reaches a level that is divisible by 5.
+     */
+    private void bossBattle() {
+        if (bossBattleActive) return; // Prevent duplicate triggers
+        bossBattleActive = true;
+        bossBattleEvent = new GameEvents.BossBattle();
+        bossBattleEvent.begin();
+        bossBattleStartTime = clock.millis();
+        bossSpawnTime = bossBattleStartTime + 1000;
+        listener.onBossBattleStart();
+    }
+
+    /**
+     * Spawns a boss enemy at one of the level's boss spawn points, or at a random free position away from
+     * the player.
+     */
+    void spawnBossEnemy() {
+        GameEvents.Spawn event = new GameEvents.Spawn();
+        event.begin();
+        long attempts = spawnIndex.getAttempts();
+        int tile = levelBossSpawn();
+        if (tile < 0) {
+            spawnSpacing = 0;
+            tile = spawnIndex.pick(random, spawnTest);
+        }
+        commitSpawn(event, true, attempts, tile >= 0);
+        if (tile < 0) {
+            reportSpawnFailure();
+            return;
+        }
+        int newX = tile % maxCol * tileSize;
+        int newY = tile / maxCol * tileSize;
+
+        // Add the boss at the generated coordinates
+        int index = bosses.add(newX, newY, 2, randomAngle(), EntityStore.KIND_BOSS, nextEntitySeed());
+        bossGrid.insert(index, newX, newY);
+        emitBurst(newX, newY, 80, ParticleSystem.PALETTE_BOSS);
+        listener.onBossSpawned(newX, newY);
+    }
+
+    /**
+     * Spawns an enemy at a random free position away from the player.
+     *
+     * @return false if no position was free
+     */
+    public boolean spawnNewEnemy() {
+        if (!spawnEnemy(0)) {
+            reportSpawnFailure();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Spawns an enemy on a free cell at least spacing tiles away from every other enemy.
+     */
+    private boolean spawnEnemy(int spacing) {
+        GameEvents.Spawn event = new GameEvents.Spawn();
+        event.begin();
+        long attempts = spawnIndex.getAttempts();
+        spawnSpacing = spacing;
+        int tile = spawnIndex.pick(random, spawnTest);
+        commitSpawn(event, false, attempts, tile >= 0);
+        if (tile < 0) {
+            return false;
+        }
+        int newX = tile % maxCol * tileSize;
+        int newY = tile / maxCol * tileSize;
+
+        // Add the new enemy to the store
+        int index = enemies.add(newX, newY, 2, randomAngle(), EntityStore.KIND_ENEMY, nextEntitySeed());
+        enemyGrid.insert(index, newX, newY);
+        emitBurst(newX, newY, 12, ParticleSystem.PALETTE_SPAWN);
+        listener.onEnemySpawned(newX, newY);
+        return true;
+    }
+
+    /**
+     * Places a wave of enemies with Poisson-disk spacing: every enemy keeps WAVE_SPACING tiles from all
+     * others, and the spacing is only halved when the map is too crowded for it.
+     */
+    void spawnWave(int count) {
+        GameEvents.Wave event = new GameEvents.Wave();
+        event.begin();
+        long attempts = spawnIndex.getAttempts();
+        int spacing = WAVE_SPACING;
+        int spawned = 0;
+        while (spawned < count) {
+            if (spawnEnemy(spacing)) {
+                spawned++;
+            } else if (spacing == 0) {
+                reportSpawnFailure();
+                break; // Full; the rest of the wave would fail as well
+            } else {
+                spacing /= 2;
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.requested = count;
+            event.spawned = spawned;
+            event.attempts = spawnIndex.getAttempts() - attempts;
+            event.spacing = spacing;
+            event.commit();
+        }
+    }
+
+    private void commitSpawn(GameEvents.Spawn event, boolean boss, long attemptsBefore, boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.boss = boss;
+            event.attempts = spawnIndex.getAttempts() - attemptsBefore;
+            event.spacing = boss ? 0 : spawnSpacing;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    /**
+     * Whether an enemy or boss may spawn on the cell right now: not on another enemy, away from the player,
+     * and, while placing a wave, away from other enemies.
+     */
+    private boolean isFreeSpawnCell(int col, int row) {
+        int x = col * tileSize;
+        int y = row * tileSize;
+        return !isOccupiedByEnemy(x, y)
+                && Math.abs(player.getX() - x) >= SAFE_DISTANCE * tileSize
+                && Math.abs(player.getY() - y) >= SAFE_DISTANCE * tileSize
+                && (spawnSpacing == 0 || !enemyGrid.anyWithin(x, y, spawnSpacing * tileSize));
+    }
+
+    /**
+     * Moves an enemy without steering it, keeping the grid in step; for tools and benchmarks.
+     */
+    void placeEnemy(int index, int x, int y) {
+        enemies.x[index] = x;
+        enemies.y[index] = y;
+        enemyGrid.move(index, x, y);
+    }
+
+    /**
+     * Removes an enemy by moving the last one into its slot; for tools and benchmarks.
+     */
+    void removeEnemy(int index) {
+        enemies.swapRemove(index);
+        enemyGrid.swapRemove(index);
+    }
+
+    /**
+     * Moves a boss without steering it, keeping the grid in step; for tools and benchmarks.
+     */
+    void placeBoss(int index, int x, int y) {
+        bosses.x[index] = x;
+        bosses.y[index] = y;
+        bossGrid.move(index, x, y);
+    }
+
+    private void reportSpawnFailure() {
+        failedSpawns++;
+        listener.onSpawnFailed();
+    }
+
+    /**
+     * Picks a usable boss spawn point of the level, starting at a random one, or returns -1 if the level
+     * has none or all are blocked or too close to the player.
+     */
+    private int levelBossSpawn() {
+        int[] points = currentLevel != null ? currentLevel.bossSpawns : null;
+        if (points == null || points.length == 0) {
+            return -1;
+        }
+        int count = points.length / 2;
+        int first = random.nextInt(count);
+        for (int i = 0; i < count; i++) {
+            int p = (first + i) % count * 2;
+            int x = points[p] * tileSize;
+            int y = points[p + 1] * tileSize;
+            if (!map.isSolid(points[p], points[p + 1]) && !isOccupiedByEnemy(x, y)
+                    && Math.abs(player.getX() - x) >= SAFE_DISTANCE * tileSize
+                    && Math.abs(player.getY() - y) >= SAFE_DISTANCE * tileSize) {
+                return points[p + 1] * maxCol + points[p];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Emits particles from the centre of the tile-sized entity at (x, y).
+     */
+    private void emitBurst(int x, int y, int count, byte palette) {
+        if (particles.capacity == 0) {
+            return;
+        }
+        particles.emitBurst(x + tileSize / 2f, y + tileSize / 2f, count, 6, clock.getTicksPerSecond() / 2, palette);
+    }
+
+    /**
+     * Unloads the map chunks far from the player once the player moved into another chunk, and moves the
+     * spawn area along with them.
+     */
+    private void trimMap(int tileX, int tileY) {
+        int chunkX = tileX >> TileMap.CHUNK_SHIFT;
+        int chunkY = tileY >> TileMap.CHUNK_SHIFT;
+        if (chunkX != residentChunkX || chunkY != residentChunkY) {
+            residentChunkX = chunkX;
+            residentChunkY = chunkY;
+            map.trim(tileX, tileY, RESIDENT_CHUNK_RADIUS);
+            spawnIndex.moveTo(tileX, tileY);
+        }
+    }
+
+    /**
+     * Centres the spawn area on the player's tile after the player was placed rather than moved.
+     */
+    private void centerSpawnArea() {
+        spawnIndex.moveTo((player.getX() + tileSize / 2) / tileSize, (player.getY() + tileSize / 2) / tileSize);
+    }
+
+    private double randomAngle() {
+        return random.nextDouble() * 2 * Math.PI;
+    }
+
+    private long nextEntitySeed() {
+        return FastRandom.mix(entitySeed + spawnCount++);
+    }
+
+    private boolean isOccupiedByEnemy(int x, int y) {
+        return enemyGrid.containsPosition(x, y);
+    }
+
+    private boolean isCollidingWithObstacle(int x, int y) {
+        return map.isSolid(x, y);
+    }
+
+    private boolean isCollidingWithEntity(int x1, int y1, int x2, int y2) {
+        return x1 < x2 + tileSize && x1 + tileSize > x2 &&
+                y1 < y2 + tileSize && y1 + tileSize > y2;
+    }
+
+    private int startX() {
+        if (currentLevel != null && currentLevel.playerCol >= 0) {
+            return currentLevel.playerCol * tileSize;
+        }
+        return (maxCol * tileSize) / 2 - tileSize / 2;
+    }
+
+    private int startY() {
+        if (currentLevel != null && currentLevel.playerRow >= 0) {
+            return currentLevel.playerRow * tileSize;
+        }
+        return (maxRow * tileSize) / 2 - tileSize / 2;
+    }
+}
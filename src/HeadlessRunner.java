@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * HeadlessRunner steps a GameWorld without a display as fast as possible, for soak-testing
+ * difficulty curves and spawn behaviour. A simple bot steers away from the nearest enemy, and the
+ * run restarts on game over.
+ * With -Dgame.replay=<file> it instead replays an input recording made with -Dgame.record=<file>.
+ * -Dgame.worldCols and -Dgame.worldRows set the world size in tiles (default 20x20); -Dgame.levels=a.lvl,b.lvl
+ * plays level files instead.
+ * With -Dgame.checkRewind=true the bot keeps rewinding the world a few seconds with rewindTo() and checks that
+ * the state it gets back is byte for byte the state written at that tick; exits with status 1 if one differs.
+ *
+ * Usage: java HeadlessRunner [simulatedSeconds] [seed]
+ */
+public class HeadlessRunner {
+    private static final int REWIND_CHECK_SECONDS = 5; // A state is saved every this many seconds
+    private static final int REWIND_CHECK_OFFSET = 37; // Ticks past the second, so the rewind re-simulates
+    private static final int REWIND_CHECK_DISTANCE = 200; // Ticks played before going back to the saved state
+
+    public static void main(String[] args) {
+        String replay = System.getProperty("game.replay");
+        if (replay != null) {
+            replay(replay);
+            return;
+        }
+
+        long simulatedSeconds = args.length > 0 ? Long.parseLong(args[0]) : 3600;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        int ticksPerSecond = 60;
+        TickClock clock = new TickClock(ticksPerSecond);
+        GameWorld world;
+        try {
+            world = createWorld(clock, seed, Integer.getInteger("game.worldCols", 20),
+                    Integer.getInteger("game.worldRows", 20), System.getProperty("game.levels", ""));
+        } catch (IOException e) {
+            System.err.println("Error loading levels: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        world.setParallelEnemyUpdate(Boolean.getBoolean("game.parallelEnemies"));
+        world.setFastSteering(Boolean.getBoolean("game.fastSteering"));
+        if (Boolean.getBoolean("game.checkRewind")) {
+            System.exit(checkRewinds(world, simulatedSeconds) ? 0 : 1);
+        }
+
+        InputState input = new InputState();
+        int deaths = 0;
+        long wallStart = System.nanoTime();
+        for (long second = 1; second <= simulatedSeconds; second++) {
+            for (int i = 0; i < ticksPerSecond; i++) {
+                steerBot(world, input);
+                world.applyInput(input);
+                world.step(1);
+            }
+
+            if (world.isGameOver()) {
+                deaths++;
+                System.out.println("t=" + second + "s game over at " + world.getElapsedTime() + "s, level " + world.getLevel());
+                world.restart();
+            } else if (second % 60 == 0) {
+                System.out.println("t=" + second + "s level " + world.getLevel() + ", enemies " + world.enemies.size()
+                        + ", bosses " + world.bosses.size());
+            }
+        }
+
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+        System.out.printf("Simulated %ds in %.2fs (%.0fx real time), %d deaths, longest run %ds, %d spawns skipped%n",
+                simulatedSeconds, wallSeconds, simulatedSeconds / wallSeconds, deaths, world.getLongestTime(),
+                world.getFailedSpawns());
+    }
+
+    /**
+     * Plays the bot with a WorldHistory for the given time, retrying after every game over. Every
+     * REWIND_CHECK_SECONDS it saves the world's state, plays on for REWIND_CHECK_DISTANCE ticks, rewinds
+     * to the saved tick and compares the state with the saved bytes. The best time is the one field a
+     * rewind keeps, so it is taken from the world before comparing.
+     *
+     * @return whether every rewind gave back the saved state
+     */
+    private static boolean checkRewinds(GameWorld world, long simulatedSeconds) {
+        int ticksPerSecond = world.getClock().getTicksPerSecond();
+        world.setHistory(new WorldHistory(2 * REWIND_CHECK_SECONDS, ticksPerSecond));
+        long end = simulatedSeconds * ticksPerSecond;
+        long period = (long) REWIND_CHECK_SECONDS * ticksPerSecond;
+        InputState input = new InputState();
+        ByteBuffer saved = null;
+        long savedTick = -1;
+        long lastSavedTick = -1;
+        int rewinds = 0;
+        int mismatches = 0;
+        long wallStart = System.nanoTime();
+        while (world.getClock().getTick() < end) {
+            steerBot(world, input);
+            if (world.isGameOver()) {
+                input.setButtons(InputState.RETRY); // Recorded by the history, unlike restart()
+            }
+            world.applyInput(input);
+            world.step(1);
+
+            long tick = world.getClock().getTick();
+            if (tick > period && tick % period == REWIND_CHECK_OFFSET && tick > lastSavedTick) {
+                saved = state(world);
+                savedTick = tick;
+                lastSavedTick = tick;
+            } else if (savedTick >= 0 && tick == savedTick + REWIND_CHECK_DISTANCE) {
+                rewinds++;
+                ByteBuffer rewound = world.rewindTo(savedTick) ? state(world) : null;
+                saved.putLong(GameWorld.STATE_LONGEST_TIME_OFFSET, world.getLongestTime());
+                if (rewound == null || !rewound.equals(saved)) {
+                    mismatches++;
+                    System.out.println("Rewind to tick " + savedTick + " differs from the saved state"
+                            + (rewound == null ? ": not in the history" : " from byte "
+                            + Arrays.mismatch(saved.array(), rewound.array())));
+                }
+                savedTick = -1; // Plays on from the saved tick, saving the next state a period later
+            }
+        }
+        System.out.printf("%d rewinds over %ds in %.2fs: %d differ from the state at their tick%n",
+                rewinds, simulatedSeconds, (System.nanoTime() - wallStart) / 1e9, mismatches);
+        return mismatches == 0;
+    }
+
+    private static ByteBuffer state(GameWorld world) {
+        ByteBuffer buffer = ByteBuffer.allocate(world.stateBytes());
+        world.writeState(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Moves the player away from the nearest enemy, falling back towards the map centre near walls.
+     */
+    static void steerBot(GameWorld world, InputState input) {
+        Player player = world.getPlayer();
+        int awayX = 0;
+        int awayY = 0;
+        long nearest = Long.MAX_VALUE;
+        EntityStore enemies = world.enemies;
+        for (int i = 0; i < enemies.size(); i++) {
+            long dx = player.getX() - enemies.x[i];
+            long dy = player.getY() - enemies.y[i];
+            long distance = dx * dx + dy * dy;
+            if (distance < nearest) {
+                nearest = distance;
+                awayX = Long.signum(dx);
+                awayY = Long.signum(dy);
+            }
+        }
+
+        int margin = 2 * world.tileSize;
+        int centerX = world.maxCol * world.tileSize / 2;
+        int centerY = world.maxRow * world.tileSize / 2;
+        if (player.getX() < margin || player.getX() > world.maxCol * world.tileSize - margin - world.tileSize) {
+            awayX = Integer.signum(centerX - player.getX());
+        }
+        if (player.getY() < margin || player.getY() > world.maxRow * world.tileSize - margin - world.tileSize) {
+            awayY = Integer.signum(centerY - player.getY());
+        }
+        input.setButtons((awayY < 0 ? InputState.UP : 0) | (awayY > 0 ? InputState.DOWN : 0)
+                | (awayX < 0 ? InputState.LEFT : 0) | (awayX > 0 ? InputState.RIGHT : 0));
+    }
+
+    /**
+     * Creates a world playing the comma-separated level files, or a generated world of the given size if
+     * there are none.
+     */
+    static GameWorld createWorld(TickClock clock, long seed, int cols, int rows, String levels)
+            throws IOException {
+        if (levels.isEmpty()) {
+            return new GameWorld(clock, seed, 60, cols, rows);
+        }
+        return new GameWorld(clock, seed, 60, LevelFile.openAll(levels));
+    }
+
+    /**
+     * Replays a recorded session tick for tick and prints where it ended.
+     */
+    private static void replay(String path) {
+        InputRecording recording;
+        GameWorld world;
+        try {
+            recording = InputRecording.load(Paths.get(path));
+            world = createWorld(new TickClock(recording.ticksPerSecond), recording.seed,
+                    recording.worldCols, recording.worldRows, recording.levels);
+        } catch (IOException e) {
+            System.err.println("Error loading input recording: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        world.setParallelEnemyUpdate((recording.options & InputRecording.PARALLEL_ENEMIES) != 0);
+        world.setFastSteering((recording.options & InputRecording.FAST_STEERING) != 0);
+        int historySeconds = recording.options >>> InputRecording.HISTORY_SHIFT;
+        if (historySeconds > 0) {
+            world.setHistory(new WorldHistory(historySeconds, recording.ticksPerSecond)); // Rewinds replay the same
+        }
+        world.setListener(new GameWorld.Listener() {
+            @Override
+            public void onGameOver() {
+                System.out.println("tick " + world.getClock().getTick() + " game over at " + world.getElapsedTime()
+                        + "s, level " + world.getLevel());
+            }
+        });
+
+        InputState input = new InputState();
+        for (int tick = 0; tick < recording.length(); tick++) {
+            recording.replay(tick, input);
+            world.applyInput(input);
+            world.step(1);
+        }
+        Player player = world.getPlayer();
+        System.out.println("Replayed " + recording.length() + " ticks: " + (world.isGameOver() ? "game over" : "running")
+                + ", level " + world.getLevel() + ", time " + world.getElapsedTime() + "s, player at "
+                + player.getX() + "," + player.getY() + ", enemies " + world.enemies.size());
+    }
+}
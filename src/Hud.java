@@ -0,0 +1,173 @@
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Hud draws the timer, the level-up, boss battle and rewind banners and the game over screen on top of
+ * the frame. Fonts are created once and text is laid out into GlyphVectors that are only rebuilt when the
+ * text changes, e.g. once per displayed second for the timer. Banners are overlays shown while the
+ * snapshot's world is in its level up or boss battle intro phase or has just been rewound, so no Swing
+ * components are added or removed mid-game.
+ */
+public class Hud {
+    private static final Font TIMER_FONT = new Font("Arial", Font.BOLD, 40);
+    private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 30);
+    private static final Font SCORE_FONT = new Font("Arial", Font.PLAIN, 20);
+    private static final Font BUTTON_FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Font LEVEL_FONT = new Font("Arial", Font.BOLD, 64); // Larger font size
+    private static final Font BOSS_FONT = new Font("Times Roman", Font.BOLD, 80); // Large font size for emphasis
+
+    private final int screenWidth;
+    private final int screenHeight;
+    private final Rectangle levelBannerBounds;
+    private final Rectangle bossBannerBounds;
+    private Rectangle retryBounds; // Null unless the retry button is drawn here
+
+    // Text laid out for the current FontRenderContext
+    private FontRenderContext fontContext;
+    private Text gameOverText;
+    private Text retryText;
+    private Text rewindText;
+    private Text rewoundText;
+    private Text bossText;
+    private Text timerText;
+    private long timerSeconds = -1; // Seconds shown by timerText
+    private Text scoreText;
+    private long scoreSeconds = -1; // Longest time and level shown by scoreText
+    private int scoreLevel = -1;
+    private Text levelText;
+    private int levelTextLevel = -1;
+
+    public Hud(int screenWidth, int screenHeight) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+
+        int labelWidth = 400;
+        int labelHeight = 100;
+        levelBannerBounds = new Rectangle((screenWidth - labelWidth) / 2, (screenHeight - labelHeight) / 2 - 300,
+                labelWidth, labelHeight);
+        labelWidth = 600;
+        bossBannerBounds = new Rectangle(screenWidth - labelWidth - 290, screenHeight - labelHeight - 380 - 300,
+                labelWidth, labelHeight);
+    }
+
+    /**
+     * Draws a retry button at the given bounds while the game is over.
+     */
+    public void setRetryBounds(Rectangle bounds) {
+        retryBounds = bounds;
+    }
+
+    public void draw(Graphics2D g, RenderSnapshot s) {
+        FontRenderContext context = g.getFontRenderContext();
+        if (!context.equals(fontContext)) {
+            layoutStaticText(context);
+        }
+
+        if (s.gameOver) {
+            drawGameOver(g, s);
+            return;
+        }
+
+        long seconds = s.elapsedTime;
+        if (seconds != timerSeconds) {
+            timerText = layout("Time: " + GameRenderer.formatTime(seconds), TIMER_FONT);
+            timerSeconds = seconds;
+        }
+        g.setColor(Color.red);
+        g.drawGlyphVector(timerText.glyphs, screenWidth / 2 - 100, 80);
+
+        if (s.levelingUp) {
+            int level = s.level;
+            if (levelTextLevel != level) {
+                levelText = layout("Level " + level, LEVEL_FONT);
+                levelTextLevel = level;
+            }
+            drawCentered(g, levelText, levelBannerBounds, Color.RED);
+        }
+        if (s.bossIntro) {
+            drawCentered(g, bossText, bossBannerBounds, Color.RED);
+        }
+        if (s.rewound && !s.levelingUp) {
+            drawCentered(g, rewoundText, levelBannerBounds, Color.RED);
+        }
+    }
+
+    private void drawGameOver(Graphics2D g, RenderSnapshot s) {
+        // Draw "GAME OVER" text with a shadow for better readability
+        g.setColor(Color.BLACK);
+        g.drawGlyphVector(gameOverText.glyphs, screenWidth / 2 - 105, screenHeight / 2 + 2); // Shadow offset
+        g.setColor(Color.RED);
+        g.drawGlyphVector(gameOverText.glyphs, screenWidth / 2 - 100, screenHeight / 2);
+
+        // Draw the longest time and level
+        long seconds = s.longestTime;
+        int level = s.level;
+        if (seconds != scoreSeconds || level != scoreLevel) {
+            scoreText = layout("Longest Time: " + GameRenderer.formatTime(seconds) + " -- Level: " + level, SCORE_FONT);
+            scoreSeconds = seconds;
+            scoreLevel = level;
+        }
+        g.drawGlyphVector(scoreText.glyphs, screenWidth / 2 - 140, screenHeight / 2 + 40);
+        if (s.canRewind) {
+            g.drawGlyphVector(rewindText.glyphs, screenWidth / 2 - 140, screenHeight / 2 + 70);
+        }
+
+        if (retryBounds != null) {
+            Rectangle r = retryBounds;
+            g.setColor(Color.LIGHT_GRAY);
+            g.fillRect(r.x, r.y, r.width, r.height);
+            g.setColor(Color.DARK_GRAY);
+            g.drawRect(r.x, r.y, r.width - 1, r.height - 1);
+            drawCentered(g, retryText, r, Color.BLACK);
+        }
+    }
+
+    private void layoutStaticText(FontRenderContext context) {
+        fontContext = context;
+        gameOverText = layout("GAME OVER", GAME_OVER_FONT);
+        retryText = layout("Retry", BUTTON_FONT);
+        rewindText = layout("Backspace: rewind a few seconds", SCORE_FONT);
+        rewoundText = layout("Rewound", LEVEL_FONT);
+        bossText = layout("Boss Battle!", BOSS_FONT);
+        timerSeconds = -1;
+        scoreSeconds = -1;
+        levelTextLevel = -1;
+    }
+
+    private Text layout(String text, Font font) {
+        GlyphVector glyphs = font.createGlyphVector(fontContext, text);
+        LineMetrics metrics = font.getLineMetrics(text, fontContext);
+        Rectangle2D bounds = glyphs.getLogicalBounds();
+        return new Text(glyphs, (float) bounds.getWidth(), metrics.getAscent(), metrics.getDescent());
+    }
+
+    /**
+     * Draws the text centered in the rectangle, the way a centered JLabel would.
+     */
+    private static void drawCentered(Graphics2D g, Text text, Rectangle r, Color color) {
+        g.setColor(color);
+        float x = r.x + (r.width - text.width) / 2;
+        float y = r.y + (r.height - text.ascent - text.descent) / 2 + text.ascent;
+        g.drawGlyphVector(text.glyphs, x, y);
+    }
+
+    /**
+     * Laid out text with the metrics needed to position it.
+     */
+    private static class Text {
+        final GlyphVector glyphs;
+        final float width;
+        final float ascent;
+        final float descent;
+
+        Text(GlyphVector glyphs, float width, float ascent, float descent) {
+            this.glyphs = glyphs;
+            this.width = width;
+            this.ascent = ascent;
+            this.descent = descent;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InputQueue carries timestamped button events from the Swing event thread to the game thread.
+ * It is a bounded single-producer/single-consumer ring: each side owns one counter and publishes it
+ * with an ordered store, so neither side locks or waits. The game thread drains it at the start of each
+ * tick up to that tick's deadline, so every event is applied on the tick during which it happened.
+ */
+public class InputQueue {
+    private static final int PRESSED = 1 << 31;
+
+    private final long[] timestamps; // System.nanoTime() of each event
+    private final int[] events; // Button, plus PRESSED for presses
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next event to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written by the producer
+    private long dropped; // Events lost to a full queue, producer side only
+
+    /**
+     * @param capacity Rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        timestamps = new long[size];
+        events = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an event; called only from the producer thread. Returns false if the queue is full.
+     */
+    public boolean offer(long timestamp, int button, boolean pressed) {
+        long t = tail.get();
+        if (t - head.get() == events.length) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) (t & mask);
+        timestamps[slot] = timestamp;
+        events[slot] = pressed ? button | PRESSED : button;
+        tail.lazySet(t + 1); // Publishes the slot contents before the new tail
+        return true;
+    }
+
+    /**
+     * Applies all events up to and including the deadline to the state, leaving later events queued;
+     * called only from the consumer thread.
+     */
+    public void drainUntil(long deadline, InputState state) {
+        long h = head.get();
+        long t = tail.get();
+        while (h < t) {
+            int slot = (int) (h & mask);
+            if (timestamps[slot] - deadline > 0) {
+                break; // Belongs to a later tick
+            }
+            int event = events[slot];
+            if ((event & PRESSED) != 0) {
+                state.press(event & ~PRESSED);
+            } else {
+                state.release(event);
+            }
+            h++;
+        }
+        head.lazySet(h);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
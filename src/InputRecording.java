@@ -0,0 +1,106 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * InputRecording stores the encoded InputState of every tick of a session, together with the world seed,
+ * tick rate, world size or level files and simulation options, so HeadlessRunner can replay the session
+ * tick for tick.
+ */
+public class InputRecording {
+    private static final int MAGIC = 0x494E5054; // "INPT"
+    private static final int VERSION = 3; // Version 1 always used 20x20 tiles, version 2 had no levels
+
+    // Option flags, see GameWorld.setParallelEnemyUpdate() and setFastSteering()
+    static final int PARALLEL_ENEMIES = 1;
+    static final int FAST_STEERING = 2;
+    static final int HISTORY_SHIFT = 8; // The options above this bit hold the seconds of rewind history
+
+    final long seed;
+    final int ticksPerSecond;
+    final int options;
+    final int worldCols;
+    final int worldRows;
+    final String levels; // Comma-separated level files, empty for a generated world
+    private int[] ticks;
+    private int length;
+
+    public InputRecording(long seed, int ticksPerSecond, int options, int worldCols, int worldRows, String levels) {
+        this(seed, ticksPerSecond, options, worldCols, worldRows, levels, new int[1024], 0);
+    }
+
+    private InputRecording(long seed, int ticksPerSecond, int options, int worldCols, int worldRows, String levels,
+                           int[] ticks, int length) {
+        this.seed = seed;
+        this.ticksPerSecond = ticksPerSecond;
+        this.options = options;
+        this.worldCols = worldCols;
+        this.worldRows = worldRows;
+        this.levels = levels;
+        this.ticks = ticks;
+        this.length = length;
+    }
+
+    /**
+     * Appends the input of the next tick.
+     */
+    public void record(InputState input) {
+        if (length == ticks.length) {
+            ticks = Arrays.copyOf(ticks, length * 2);
+        }
+        ticks[length++] = input.encode();
+    }
+
+    /**
+     * Loads the input of the given tick into the state.
+     */
+    public void replay(int tick, InputState input) {
+        input.decode(ticks[tick]);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(ticksPerSecond);
+            out.writeInt(options);
+            out.writeInt(worldCols);
+            out.writeInt(worldRows);
+            out.writeUTF(levels);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                out.writeInt(ticks[i]);
+            }
+        }
+    }
+
+    public static InputRecording load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an input recording: " + path);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported input recording version " + version + ": " + path);
+            }
+            long seed = in.readLong();
+            int ticksPerSecond = in.readInt();
+            int options = in.readInt();
+            int worldCols = version == 1 ? 20 : in.readInt();
+            int worldRows = version == 1 ? 20 : in.readInt();
+            String levels = version < 3 ? "" : in.readUTF();
+            int length = in.readInt();
+            int[] ticks = new int[Math.max(length, 1)];
+            for (int i = 0; i < length; i++) {
+                ticks[i] = in.readInt();
+            }
+            return new InputRecording(seed, ticksPerSecond, options, worldCols, worldRows, levels, ticks, length);
+        }
+    }
+}
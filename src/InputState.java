@@ -0,0 +1,80 @@
+/**
+ * InputState is the input of one simulation tick: which buttons are down, and which were pressed or
+ * released during the tick. A tap shorter than a tick shows up as both a press and a release, so
+ * held() still reports it and the tap moves the player for that tick instead of being lost.
+ * The whole state packs into one int (see encode()), which is what input recordings store per tick.
+ */
+public class InputState {
+    public static final int UP = 1;
+    public static final int DOWN = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+    public static final int RETRY = 1 << 4;
+    public static final int REWIND = 1 << 5;
+    private static final int BUTTON_BITS = 8;
+    private static final int BUTTON_MASK = (1 << BUTTON_BITS) - 1;
+
+    private int down; // Buttons down at the end of the tick
+    private int pressed; // Buttons that went down during the tick
+    private int released; // Buttons that went up during the tick
+
+    /**
+     * Starts a new tick: buttons stay down, edges are cleared.
+     */
+    public void beginTick() {
+        pressed = 0;
+        released = 0;
+    }
+
+    public void press(int button) {
+        if ((down & button) == 0) { // Ignore key repeat
+            down |= button;
+            pressed |= button;
+        }
+    }
+
+    public void release(int button) {
+        if ((down & button) != 0) {
+            down &= ~button;
+            released |= button;
+        }
+    }
+
+    /**
+     * Sets the buttons that are down, deriving the edges from the previous state; used by bots.
+     */
+    public void setButtons(int buttons) {
+        pressed = buttons & ~down;
+        released = down & ~buttons;
+        down = buttons;
+    }
+
+    public boolean isDown(int button) {
+        return (down & button) != 0;
+    }
+
+    public boolean wasPressed(int button) {
+        return (pressed & button) != 0;
+    }
+
+    public boolean wasReleased(int button) {
+        return (released & button) != 0;
+    }
+
+    /**
+     * Buttons that were down at any point during the tick.
+     */
+    public int held() {
+        return down | pressed;
+    }
+
+    public int encode() {
+        return down | pressed << BUTTON_BITS | released << (2 * BUTTON_BITS);
+    }
+
+    public void decode(int encoded) {
+        down = encoded & BUTTON_MASK;
+        pressed = (encoded >>> BUTTON_BITS) & BUTTON_MASK;
+        released = (encoded >>> (2 * BUTTON_BITS)) & BUTTON_MASK;
+    }
+}
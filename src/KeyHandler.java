@@ -1,9 +1,14 @@
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
+/**
+ * KeyHandler turns key events into timestamped button events on an InputQueue, which the game thread
+ * drains once per tick. WASD and the arrow keys move, Enter or R retries after a game over and Backspace
+ * rewinds to a few seconds before it.
+ */
 public class KeyHandler implements KeyListener {
 
-    public boolean upPressed, downPressed, leftPressed, rightPressed;
+    final InputQueue queue = new InputQueue(1024);
 
     @Override
     public void keyTyped(KeyEvent e) {
@@ -12,45 +17,51 @@ public class KeyHandler implements KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
-
-        int code = e.getKeyCode();
-
-        if(code == KeyEvent.VK_W) {
-            upPressed = true;
-        }
-        if(code == KeyEvent.VK_A) {
-            leftPressed = true;
-
+        int button = buttonFor(e.getKeyCode());
+        if (button != 0) {
+            queue.offer(System.nanoTime(), button, true);
         }
-        if(code == KeyEvent.VK_S) {
-            downPressed = true;
-
-        }
-        if(code == KeyEvent.VK_D) {
-            rightPressed = true;
-        }
-
     }
 
     @Override
     public void keyReleased(KeyEvent e) {
-
-        int code = e.getKeyCode();
-
-        if(code == KeyEvent.VK_W) {
-            upPressed = false;
+        int button = buttonFor(e.getKeyCode());
+        if (button != 0) {
+            queue.offer(System.nanoTime(), button, false);
         }
-        if(code == KeyEvent.VK_A) {
-            leftPressed = false;
+    }
 
-        }
-        if(code == KeyEvent.VK_S) {
-            downPressed = false;
+    /**
+     * Queues a press and release of the button, e.g. for a click on an on-screen button.
+     * Must be called from the event thread like the key events.
+     */
+    public void click(int button) {
+        long now = System.nanoTime();
+        queue.offer(now, button, true);
+        queue.offer(now, button, false);
+    }
 
+    private static int buttonFor(int code) {
+        switch (code) {
+            case KeyEvent.VK_W:
+            case KeyEvent.VK_UP:
+                return InputState.UP;
+            case KeyEvent.VK_S:
+            case KeyEvent.VK_DOWN:
+                return InputState.DOWN;
+            case KeyEvent.VK_A:
+            case KeyEvent.VK_LEFT:
+                return InputState.LEFT;
+            case KeyEvent.VK_D:
+            case KeyEvent.VK_RIGHT:
+                return InputState.RIGHT;
+            case KeyEvent.VK_ENTER:
+            case KeyEvent.VK_R:
+                return InputState.RETRY;
+            case KeyEvent.VK_BACK_SPACE:
+                return InputState.REWIND;
+            default:
+                return 0;
         }
-        if(code == KeyEvent.VK_D) {
-            rightPressed = false;
-        }
-
     }
 }
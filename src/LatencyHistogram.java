@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram counts durations in a fixed set of log-linear buckets: every power of two is split into
+ * 16 linear sub-buckets, so any value up to Long.MAX_VALUE is recorded with at most 1/16 (6%) error in
+ * constant time. Percentiles report the upper end of their bucket. The buckets are allocated by the first
+ * record, so histograms that are never used cost almost nothing, and nothing is allocated after that.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS; // Up to 2^63
+
+    private long[] counts; // Null until the first record
+    private long count;
+    private long max;
+
+    /**
+     * Records a value; negative values count as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        if (counts == null) {
+            counts = new long[BUCKETS];
+        }
+        counts[bucket(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * The smallest recorded value that the given fraction (0..1) of all values is less than or equal to,
+     * rounded up to its bucket; 0 if nothing was recorded.
+     */
+    public long percentile(double fraction) {
+        long[] buckets = counts;
+        if (count == 0 || buckets == null) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        if (counts != null) {
+            Arrays.fill(counts, 0);
+        }
+        count = 0;
+        max = 0;
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // At least SUB_BUCKET_BITS
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS | subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1; // exponent - SUB_BUCKET_BITS
+        long lower = (long) (SUB_BUCKETS | bucket & (SUB_BUCKETS - 1)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
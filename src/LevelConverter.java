@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LevelConverter turns a human-readable level into a binary LevelFile.
+ *
+ * Usage: java LevelConverter level.txt level.lvl
+ *
+ * The text format has optional settings followed by the tile grid:
+ * <pre>
+ * # Comment
+ * spawnInterval 8000       milliseconds between single enemy spawns
+ * waveSize 6               enemies per level-up wave
+ * zone 2 2 10 5            spawn zone: column, row, width, height in tiles (repeatable)
+ * map
+ * ####################     one line per row: # wall, P player start, B boss spawn point,
+ * #P.......B.........#     anything else open space; short lines are padded with open space
+ * ####################
+ * </pre>
+ */
+public class LevelConverter {
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java LevelConverter level.txt level.lvl");
+            System.exit(1);
+        }
+        try {
+            LevelFile level = parse(Paths.get(args[0]));
+            level.save(Paths.get(args[1]));
+            System.out.println("Converted " + args[0] + " (" + level.cols + "x" + level.rows + " tiles) to " + args[1]);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error converting level: " + e.getMessage()); // Names the file and line
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error converting level: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    static LevelFile parse(Path path) throws IOException {
+        int spawnInterval = 0;
+        int waveSize = 0;
+        List<Integer> zones = new ArrayList<>();
+        List<String> grid = new ArrayList<>();
+        boolean inMap = false;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            if (inMap) {
+                grid.add(line);
+                continue;
+            }
+            String[] words = line.trim().split("\\s+");
+            try {
+                switch (words[0]) {
+                    case "":
+                        break;
+                    case "spawnInterval":
+                        spawnInterval = Integer.parseInt(words[1]);
+                        break;
+                    case "waveSize":
+                        waveSize = Integer.parseInt(words[1]);
+                        break;
+                    case "zone":
+                        for (int i = 1; i <= 4; i++) {
+                            zones.add(Integer.parseInt(words[i]));
+                        }
+                        break;
+                    case "map":
+                        inMap = true;
+                        break;
+                    default:
+                        if (!words[0].startsWith("#")) {
+                            throw new IllegalArgumentException("Unknown setting '" + words[0] + "'");
+                        }
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException(path + ":" + lineNumber + ": malformed '" + line + "'");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage());
+            }
+        }
+        while (!grid.isEmpty() && grid.get(grid.size() - 1).isBlank()) {
+            grid.remove(grid.size() - 1);
+        }
+        if (grid.isEmpty()) {
+            throw new IllegalArgumentException(path + ": no map");
+        }
+
+        int rows = grid.size();
+        int cols = 0;
+        for (String row : grid) {
+            cols = Math.max(cols, row.length());
+        }
+        int chunkCols = LevelFile.chunks(cols);
+        long[] tiles = new long[chunkCols * LevelFile.chunks(rows) * TileMap.WORDS_PER_CHUNK];
+        List<Integer> bossSpawns = new ArrayList<>();
+        int playerCol = -1;
+        int playerRow = -1;
+        for (int row = 0; row < rows; row++) {
+            String line = grid.get(row);
+            for (int col = 0; col < line.length(); col++) {
+                switch (line.charAt(col)) {
+                    case '#':
+                        int chunk = (row >> TileMap.CHUNK_SHIFT) * chunkCols + (col >> TileMap.CHUNK_SHIFT);
+                        int bit = (row % TileMap.CHUNK_SIZE) * TileMap.CHUNK_SIZE + col % TileMap.CHUNK_SIZE;
+                        tiles[chunk * TileMap.WORDS_PER_CHUNK + (bit >> 6)] |= 1L << bit;
+                        break;
+                    case 'P':
+                        playerCol = col;
+                        playerRow = row;
+                        break;
+                    case 'B':
+                        bossSpawns.add(col);
+                        bossSpawns.add(row);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return new LevelFile(cols, rows, playerCol, playerRow, spawnInterval, waveSize,
+                toArray(zones), toArray(bossSpawns), LongBuffer.wrap(tiles));
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
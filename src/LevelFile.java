@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * LevelFile is a designed level in a compact binary format that is memory-mapped instead of parsed:
+ * opening a level reads only the small header, and the tile layer is stored chunk by chunk in the
+ * TileMap bit layout, so map chunks are copied straight out of the mapping when the game first touches
+ * them. Use LevelConverter to create level files from text.
+ *
+ * Layout, little-endian:
+ * <pre>
+ * int magic "LEVL", int version
+ * int cols, int rows              map size in tiles
+ * int playerCol, int playerRow    player start, -1 for the map centre
+ * int spawnInterval               milliseconds between single enemy spawns, 0 for the game's default
+ * int waveSize                    enemies per level-up wave, 0 for the game's default
+ * int zoneCount, int bossCount
+ * zoneCount x (col, row, width, height)   spawn zones in tiles, none for the whole map
+ * bossCount x (col, row)                  boss spawn points, none for anywhere
+ * padding to a multiple of 8 bytes
+ * chunkRows x chunkCols x TileMap.WORDS_PER_CHUNK longs   tile bits, row-major chunks
+ * </pre>
+ */
+public class LevelFile {
+    private static final int MAGIC = 0x4C45564C; // "LEVL"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 10;
+
+    final int cols;
+    final int rows;
+    final int playerCol;
+    final int playerRow;
+    final int spawnInterval;
+    final int waveSize;
+    final int[] zones; // col, row, width, height per zone
+    final int[] bossSpawns; // col, row per point
+    private final LongBuffer tiles; // Read with absolute gets only, so any thread may load chunks
+    private final int chunkCols;
+
+    LevelFile(int cols, int rows, int playerCol, int playerRow, int spawnInterval, int waveSize,
+              int[] zones, int[] bossSpawns, LongBuffer tiles) {
+        this.cols = cols;
+        this.rows = rows;
+        this.playerCol = playerCol;
+        this.playerRow = playerRow;
+        this.spawnInterval = spawnInterval;
+        this.waveSize = waveSize;
+        this.zones = zones;
+        this.bossSpawns = bossSpawns;
+        this.tiles = tiles;
+        this.chunkCols = chunks(cols);
+        for (int i = 0; i < zones.length; i += 4) {
+            if (zones[i] < 0 || zones[i + 1] < 0 || zones[i + 2] <= 0 || zones[i + 3] <= 0
+                    || zones[i] + zones[i + 2] > cols || zones[i + 1] + zones[i + 3] > rows) {
+                throw new IllegalArgumentException("Spawn zone outside the map: " + zones[i] + " " + zones[i + 1]
+                        + " " + zones[i + 2] + " " + zones[i + 3]);
+            }
+        }
+        for (int i = 0; i < bossSpawns.length; i += 2) {
+            if (bossSpawns[i] < 0 || bossSpawns[i + 1] < 0 || bossSpawns[i] >= cols || bossSpawns[i + 1] >= rows) {
+                throw new IllegalArgumentException("Boss spawn point outside the map: " + bossSpawns[i] + " "
+                        + bossSpawns[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Maps a level file; the tiles stay on disk until chunks are loaded.
+     */
+    public static LevelFile open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after closing
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a level file: " + path);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported level file version " + version + ": " + path);
+        }
+        int cols = buffer.getInt(8);
+        int rows = buffer.getInt(12);
+        int zoneCount = buffer.getInt(32);
+        int bossCount = buffer.getInt(36);
+        if (cols <= 0 || rows <= 0 || zoneCount < 0 || bossCount < 0
+                || buffer.limit() != fileSize(cols, rows, zoneCount, bossCount)) {
+            throw new IOException("Corrupt level file: " + path);
+        }
+
+        int[] zones = new int[zoneCount * 4];
+        int[] bossSpawns = new int[bossCount * 2];
+        buffer.position(HEADER_INTS * 4);
+        buffer.asIntBuffer().get(zones).get(bossSpawns);
+        buffer.position(tileOffset(zoneCount, bossCount));
+        LongBuffer tiles = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        try {
+            return new LevelFile(cols, rows, buffer.getInt(16), buffer.getInt(20), buffer.getInt(24),
+                    buffer.getInt(28), zones, bossSpawns, tiles);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt level file: " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens a comma-separated list of level files, e.g. the value of -Dgame.levels.
+     */
+    public static LevelFile[] openAll(String paths) throws IOException {
+        String[] names = paths.split(",");
+        LevelFile[] levels = new LevelFile[names.length];
+        for (int i = 0; i < names.length; i++) {
+            levels[i] = open(Paths.get(names[i].trim()));
+        }
+        return levels;
+    }
+
+    public void save(Path path) throws IOException {
+        int zoneCount = zones.length / 4;
+        int bossCount = bossSpawns.length / 2;
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(cols, rows, zoneCount, bossCount))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(cols).putInt(rows).putInt(playerCol).putInt(playerRow)
+                .putInt(spawnInterval).putInt(waveSize).putInt(zoneCount).putInt(bossCount);
+        buffer.asIntBuffer().put(zones).put(bossSpawns);
+        buffer.position(tileOffset(zoneCount, bossCount));
+        for (int i = 0; i < tiles.limit(); i++) {
+            buffer.putLong(tiles.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Creates a map whose chunks are loaded from this file on demand.
+     */
+    public TileMap createMap() {
+        return new TileMap(cols, rows, (chunkX, chunkY, words) ->
+                tiles.get((chunkY * chunkCols + chunkX) * TileMap.WORDS_PER_CHUNK, words));
+    }
+
+    static int chunks(int tiles) {
+        return (tiles + TileMap.CHUNK_SIZE - 1) >> TileMap.CHUNK_SHIFT;
+    }
+
+    private static int tileOffset(int zoneCount, int bossCount) {
+        return ((HEADER_INTS + zoneCount * 4 + bossCount * 2) * 4 + 7) & ~7;
+    }
+
+    private static long fileSize(int cols, int rows, int zoneCount, int bossCount) {
+        return tileOffset(zoneCount, bossCount) + (long) chunks(cols) * chunks(rows) * TileMap.WORDS_PER_CHUNK * 8;
+    }
+}
@@ -1,4 +1,8 @@
 import javax.swing.JFrame;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+
 public class Main {
     public static void main(String[] args) {
 
@@ -7,6 +11,22 @@ public class Main {
         window.setResizable(false);
         window.setTitle("Java Project 2");
 
+        // -Dgame.connect=host[:port] joins a GameServer instead of playing locally
+        String server = System.getProperty("game.connect");
+        if (server != null) {
+            ClientPanel clientPanel = connect(server);
+            if (clientPanel == null) {
+                System.exit(1);
+            }
+            window.add(clientPanel);
+            window.pack();
+            window.setLocationRelativeTo(null);
+            window.setVisible(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(clientPanel::stopGameThread));
+            clientPanel.startGameThread();
+            return;
+        }
+
         GamePanel gamePanel = new GamePanel();
         window.add(gamePanel);
 
@@ -18,8 +38,44 @@ public class Main {
         gamePanel.startGameThread();
     }
 
+    private static ClientPanel connect(String server) {
+        InetSocketAddress address = parseAddress(server);
+        if (address == null) {
+            System.err.println("Malformed server address, expected host or host:port: " + server);
+            return null;
+        }
+        if (address.isUnresolved()) {
+            System.err.println("Unknown server host: " + address.getHostString());
+            return null;
+        }
+        try {
+            NetLink link = new NetLink(DatagramChannel.open().bind(null));
+            link.simulate(Integer.getInteger("game.netLatency", 0), Integer.getInteger("game.netJitter", 0),
+                    Integer.getInteger("game.netLoss", 0) / 100.0, System.nanoTime());
+            GameClient client = new GameClient(link, address);
+            if (!client.connect(5000)) {
+                System.err.println("No answer from " + server);
+                return null;
+            }
+            return new ClientPanel(client);
+        } catch (IOException e) {
+            System.err.println("Error connecting to " + server + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-
-
-
+    /**
+     * Parses host or host:port, with GameServer's default port; null if the address is malformed.
+     */
+    private static InetSocketAddress parseAddress(String server) {
+        int colon = server.lastIndexOf(':');
+        String host = colon < 0 ? server : server.substring(0, colon);
+        try {
+            int port = colon < 0 ? GameServer.DEFAULT_PORT : Integer.parseInt(server.substring(colon + 1));
+            return host.isEmpty() ? null : new InetSocketAddress(host, port);
+        } catch (IllegalArgumentException e) { // Not a number, or out of range
+            return null;
+        }
     }
+}
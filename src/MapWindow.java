@@ -0,0 +1,89 @@
+/**
+ * MapWindow is a copy of the chunks of a TileMap that a view can show: their tile bits and versions, for a
+ * rectangle of chunks. RenderSnapshot fills one on the game thread for the camera's view at the previous and
+ * current tick, so the renderer never reads the world's map, which the game thread keeps editing, trimming
+ * and loading chunks into. The arrays are reused and only grow.
+ */
+public class MapWindow {
+    private int mapId = -1; // TileMap.id of the copied map
+    private int cols; // Size of the whole map in tiles
+    private int rows;
+    private int firstChunkX;
+    private int firstChunkY;
+    private int chunkCols; // Size of the window in chunks
+    private int chunkRows;
+    private long[] words = new long[0]; // TileMap.WORDS_PER_CHUNK words per chunk, row by row
+    private int[] versions = new int[0];
+    private final long[] scratch = new long[TileMap.WORDS_PER_CHUNK];
+
+    /**
+     * Copies the chunks holding the tiles [firstCol, lastCol] x [firstRow, lastRow], clipped to the map.
+     */
+    void capture(TileMap map, int firstCol, int firstRow, int lastCol, int lastRow) {
+        mapId = map.id;
+        cols = map.getCols();
+        rows = map.getRows();
+        int shift = TileMap.CHUNK_SHIFT;
+        firstChunkX = Math.max(0, firstCol) >> shift;
+        firstChunkY = Math.max(0, firstRow) >> shift;
+        chunkCols = Math.max(0, (Math.min(cols - 1, lastCol) >> shift) - firstChunkX + 1);
+        chunkRows = Math.max(0, (Math.min(rows - 1, lastRow) >> shift) - firstChunkY + 1);
+
+        int count = chunkCols * chunkRows;
+        if (versions.length < count) {
+            versions = new int[Math.max(count, versions.length * 2)];
+            words = new long[versions.length * TileMap.WORDS_PER_CHUNK];
+        }
+        for (int cy = 0; cy < chunkRows; cy++) {
+            for (int cx = 0; cx < chunkCols; cx++) {
+                int index = cy * chunkCols + cx;
+                versions[index] = map.readChunk(firstChunkX + cx, firstChunkY + cy, scratch);
+                System.arraycopy(scratch, 0, words, index * TileMap.WORDS_PER_CHUNK, TileMap.WORDS_PER_CHUNK);
+            }
+        }
+    }
+
+    /**
+     * Identifies the map the window was copied from; a new map has a new id.
+     */
+    public int getMapId() {
+        return mapId;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Whether the tile is an obstacle; tiles outside the window are not.
+     */
+    public boolean isSolid(int col, int row) {
+        int index = chunkIndex(col >> TileMap.CHUNK_SHIFT, row >> TileMap.CHUNK_SHIFT);
+        if (index < 0) {
+            return false;
+        }
+        int bit = (row & (TileMap.CHUNK_SIZE - 1)) * TileMap.CHUNK_SIZE + (col & (TileMap.CHUNK_SIZE - 1));
+        return (words[index * TileMap.WORDS_PER_CHUNK + (bit >> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Version of the chunk when it was copied, or -1 outside the window.
+     */
+    public int getChunkVersion(int chunkX, int chunkY) {
+        int index = chunkIndex(chunkX, chunkY);
+        return index < 0 ? -1 : versions[index];
+    }
+
+    private int chunkIndex(int chunkX, int chunkY) {
+        int cx = chunkX - firstChunkX;
+        int cy = chunkY - firstChunkY;
+        if (cx < 0 || cy < 0 || cx >= chunkCols || cy >= chunkRows) {
+            return -1;
+        }
+        return cy * chunkCols + cx;
+    }
+}
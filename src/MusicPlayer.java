@@ -0,0 +1,290 @@
+import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MusicPlayer streams looping background music into a single SourceDataLine from a dedicated audio thread.
+ * Tracks are read block by block through a buffered file channel instead of being decoded into memory, and
+ * a track restarts without a gap by continuing the same block from the start of the file. Switching
+ * tracks crossfades from the old one to the new one. Every open track keeps its own gain and moves it
+ * towards full or silent at the crossfade rate, so a switch during a crossfade continues each track from
+ * the gain it had, and a track is only closed once it is silent. A track whose file is missing is reported
+ * once and plays as silence.
+ * The line's buffer is kept small (about 50 ms): the audio thread keeps that ring topped up and blocks in
+ * write() while it is full. Sound effects, if set, are mixed into the same blocks, so the game needs only
+ * this one line.
+ */
+public class MusicPlayer implements Runnable {
+    static final int NONE = -1;
+
+    static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    private static final int CHANNELS = 2;
+    private static final int BLOCK_FRAMES = 1024;
+    private static final int LINE_BUFFER_FRAMES = 2048; // ~46 ms at 44.1 kHz
+    private static final int CROSSFADE_FRAMES = 44100 * 3 / 2; // 1.5 s
+    private static final float FADE_STEP = 1f / CROSSFADE_FRAMES; // Gain change per frame while fading
+
+    private final Path[] tracks;
+    private volatile int requestedTrack = NONE;
+    private volatile float volume = 1f;
+    private volatile boolean running;
+    private Thread thread;
+    private SoundEffects effects; // Mixed on top of the music, may be null
+
+    // Audio thread only
+    private final Track[] playing; // Open tracks by index: fading in, playing or fading out, otherwise null
+    private final boolean[] missing; // Tracks whose file was not found, not opened again
+    private int currentIndex = NONE;
+    private final short[] trackBlock = new short[BLOCK_FRAMES * CHANNELS];
+    private final float[] mixBlock = new float[BLOCK_FRAMES * CHANNELS];
+    private final byte[] lineBlock = new byte[BLOCK_FRAMES * CHANNELS * 2];
+
+    public MusicPlayer(Path... tracks) {
+        this.tracks = tracks;
+        this.playing = new Track[tracks.length];
+        this.missing = new boolean[tracks.length];
+    }
+
+    /**
+     * Mixes the effects into the output; call before start().
+     */
+    public void setEffects(SoundEffects effects) {
+        this.effects = effects;
+    }
+
+    /**
+     * Starts the audio thread; the line is opened on that thread, so this returns immediately.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "music");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Crossfades to the given track, or to silence for NONE.
+     */
+    public void play(int track) {
+        requestedTrack = track;
+    }
+
+    /**
+     * Music volume, 0..1; sound effects are not affected.
+     */
+    public void setVolume(float volume) {
+        this.volume = volume;
+    }
+
+    public void close() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, LINE_BUFFER_FRAMES * FORMAT.getFrameSize());
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Error opening music line: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        line.start();
+        try {
+            while (running) {
+                switchTrackIfRequested();
+                mixBlock();
+                line.write(lineBlock, 0, lineBlock.length);
+            }
+        } finally {
+            line.stop();
+            line.close();
+            for (Track track : playing) {
+                closeQuietly(track);
+            }
+        }
+    }
+
+    private void switchTrackIfRequested() {
+        int requested = requestedTrack;
+        if (requested == currentIndex) {
+            return;
+        }
+        if (requested != NONE && playing[requested] == null && !missing[requested]) {
+            playing[requested] = open(requested); // Starts silent; a track still fading out fades back in
+        }
+        currentIndex = requested;
+    }
+
+    /**
+     * Mixes the next block of every open track and the sound effects into lineBlock. Tracks other than the
+     * current one fade out and are closed once silent; unreadable tracks are closed at once.
+     */
+    private void mixBlock() {
+        Arrays.fill(mixBlock, 0f);
+        for (int i = 0; i < playing.length; i++) {
+            Track track = playing[i];
+            if (track == null) {
+                continue;
+            }
+            float target = i == currentIndex ? 1f : 0f;
+            if (track.gain == 0f && target == 0f || !addTrack(track, target)) {
+                closeQuietly(track);
+                playing[i] = null;
+            }
+        }
+        if (effects != null) {
+            effects.mixInto(mixBlock, BLOCK_FRAMES);
+        }
+
+        for (int i = 0; i < mixBlock.length; i++) {
+            int sample = Math.round(mixBlock[i]);
+            if (sample > Short.MAX_VALUE) sample = Short.MAX_VALUE;
+            if (sample < Short.MIN_VALUE) sample = Short.MIN_VALUE;
+            lineBlock[2 * i] = (byte) sample;
+            lineBlock[2 * i + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Reads one block of the track and adds it, moving the track's gain linearly towards the target.
+     *
+     * @return false if the track could not be read
+     */
+    private boolean addTrack(Track track, float target) {
+        if (!track.read(trackBlock, BLOCK_FRAMES)) {
+            return false;
+        }
+        float trackVolume = volume;
+        float gain = track.gain;
+        for (int frame = 0; frame < BLOCK_FRAMES; frame++) {
+            gain = gain < target ? Math.min(target, gain + FADE_STEP) : Math.max(target, gain - FADE_STEP);
+            float frameGain = gain * trackVolume;
+            for (int c = 0; c < CHANNELS; c++) {
+                mixBlock[frame * CHANNELS + c] += trackBlock[frame * CHANNELS + c] * frameGain;
+            }
+        }
+        track.gain = gain;
+        return true;
+    }
+
+    private Track open(int index) {
+        try {
+            return new Track(tracks[index]);
+        } catch (NoSuchFileException e) {
+            System.err.println("Music not found, playing silence instead: " + tracks[index]);
+            missing[index] = true;
+            return null;
+        } catch (IOException | UnsupportedAudioFileException e) {
+            System.err.println("Error loading music: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Track track) {
+        if (track != null) {
+            track.close();
+        }
+    }
+
+    /**
+     * A looping PCM stream read from a WAV file through a buffered channel.
+     */
+    private static class Track {
+        private final Path path;
+        private AudioInputStream stream;
+        private int channels;
+        private byte[] bytes = new byte[0];
+        float gain; // 0..1 before the music volume, starts silent; audio thread only
+
+        Track(Path path) throws IOException, UnsupportedAudioFileException {
+            this.path = path;
+            rewind();
+        }
+
+        /**
+         * Opens the file again from the start, as 16-bit little-endian PCM at the line's sample rate.
+         */
+        private void rewind() throws IOException, UnsupportedAudioFileException {
+            close();
+            InputStream in = new BufferedInputStream(Channels.newInputStream(
+                    FileChannel.open(path, StandardOpenOption.READ)), 64 * 1024);
+            AudioInputStream source = AudioSystem.getAudioInputStream(in);
+            AudioFormat format = source.getFormat();
+            if (format.getSampleRate() != FORMAT.getSampleRate() || format.getChannels() > CHANNELS) {
+                source.close();
+                throw new UnsupportedAudioFileException("Music must be mono or stereo at "
+                        + FORMAT.getSampleRate() + " Hz: " + path);
+            }
+            channels = format.getChannels();
+            AudioFormat target = new AudioFormat(FORMAT.getSampleRate(), 16, channels, true, false);
+            stream = format.matches(target) ? source : AudioSystem.getAudioInputStream(target, source);
+        }
+
+        /**
+         * Fills out with the given number of stereo frames, wrapping to the start of the file at its end.
+         */
+        boolean read(short[] out, int frames) {
+            int frameBytes = channels * 2;
+            if (bytes.length < frames * frameBytes) {
+                bytes = new byte[frames * frameBytes];
+            }
+            int filled = 0;
+            int wraps = 0;
+            try {
+                while (filled < frames * frameBytes) {
+                    int n = stream.read(bytes, filled, frames * frameBytes - filled);
+                    if (n < 0) {
+                        if (++wraps > 1) {
+                            return false; // Empty file
+                        }
+                        rewind(); // Seamless loop: keep filling this block from the start
+                    } else {
+                        filled += n;
+                        if (n > 0) {
+                            wraps = 0;
+                        }
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                System.err.println("Music file disappeared, playing silence instead: " + path);
+                return false;
+            } catch (IOException | UnsupportedAudioFileException e) {
+                System.err.println("Error reading music: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+
+            for (int frame = 0; frame < frames; frame++) {
+                for (int c = 0; c < CHANNELS; c++) {
+                    int offset = frame * frameBytes + Math.min(c, channels - 1) * 2; // Mono feeds both channels
+                    out[frame * CHANNELS + c] = (short) ((bytes[offset] & 0xFF) | bytes[offset + 1] << 8);
+                }
+            }
+            return true;
+        }
+
+        void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing music: " + e.getMessage());
+                }
+                stream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+/**
+ * NetLink sends and receives the game's datagrams on a non-blocking DatagramChannel. For testing over
+ * loopback it can stand in for a real network: outgoing datagrams are then held back by a latency plus
+ * random jitter, which also reorders them, and a share of them is dropped. Held datagrams wait in pooled
+ * buffers ordered by a binary heap, so the simulation does not allocate once the pool has grown.
+ * flush() must be called regularly to send the datagrams that are due.
+ */
+public class NetLink {
+    private final DatagramChannel channel;
+
+    // Simulated network, off while latency, jitter and loss are all 0
+    private long latencyNanos;
+    private long jitterNanos;
+    private double loss;
+    private long random; // FastRandom state
+
+    // Held datagrams: pooled buffers, a min-heap of their slots by due time and a stack of free slots
+    private ByteBuffer[] held = new ByteBuffer[0];
+    private SocketAddress[] heldTo = new SocketAddress[0];
+    private long[] heldDue = new long[0];
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int[] free = new int[0];
+    private int freeCount;
+
+    private long packetsSent;
+    private long bytesSent;
+    private long packetsDropped; // By the simulation or because the socket buffer was full
+
+    public NetLink(DatagramChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Simulates a network on the sending side: each datagram is delayed by the latency plus up to the jitter
+     * and lost with the given probability.
+     */
+    public void simulate(int latencyMillis, int jitterMillis, double loss, long seed) {
+        this.latencyNanos = latencyMillis * 1_000_000L;
+        this.jitterNanos = jitterMillis * 1_000_000L;
+        this.loss = loss;
+        this.random = seed;
+    }
+
+    public DatagramChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Sends the remaining bytes of the packet, now or, when simulating, once it is due.
+     */
+    public void send(ByteBuffer packet, SocketAddress to) throws IOException {
+        if (latencyNanos == 0 && jitterNanos == 0 && loss == 0) {
+            transmit(packet, to);
+            return;
+        }
+        random = FastRandom.next(random);
+        if (FastRandom.toDouble(random) < loss) {
+            packetsDropped++;
+            return;
+        }
+        random = FastRandom.next(random);
+        long due = System.nanoTime() + latencyNanos + (long) (FastRandom.toDouble(random) * jitterNanos);
+
+        int slot = allocate(packet.remaining());
+        held[slot].clear();
+        held[slot].put(packet).flip();
+        heldTo[slot] = to;
+        heldDue[slot] = due;
+        push(slot);
+    }
+
+    /**
+     * Sends the held datagrams that are due.
+     */
+    public void flush() throws IOException {
+        long now = System.nanoTime();
+        while (heapSize > 0 && heldDue[heap[0]] <= now) {
+            int slot = pop();
+            transmit(held[slot], heldTo[slot]);
+            heldTo[slot] = null;
+            free[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Receives one datagram into the buffer, returning its sender, or null if none is waiting.
+     */
+    public SocketAddress receive(ByteBuffer buffer) throws IOException {
+        return channel.receive(buffer);
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    private void transmit(ByteBuffer packet, SocketAddress to) throws IOException {
+        int bytes = packet.remaining();
+        if (channel.send(packet, to) == 0) {
+            packetsDropped++; // The socket buffer is full; like the network, drop rather than wait
+        } else {
+            packetsSent++;
+            bytesSent += bytes;
+        }
+    }
+
+    private int allocate(int size) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            slot = held.length;
+            int capacity = Math.max(16, held.length * 2);
+            held = Arrays.copyOf(held, capacity);
+            heldTo = Arrays.copyOf(heldTo, capacity);
+            heldDue = Arrays.copyOf(heldDue, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            free = Arrays.copyOf(free, capacity);
+            for (int i = capacity - 1; i > slot; i--) {
+                free[freeCount++] = i;
+            }
+        }
+        if (held[slot] == null || held[slot].capacity() < size) {
+            held[slot] = ByteBuffer.allocate(Math.max(size, NetProtocol.MAX_PACKET));
+        }
+        return slot;
+    }
+
+    private void push(int slot) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heldDue[heap[parent]] <= heldDue[slot]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heldDue[heap[child + 1]] < heldDue[heap[child]]) {
+                child++;
+            }
+            if (heldDue[heap[child]] >= heldDue[last]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,46 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NetProtocol holds the datagram layout shared by GameServer and GameClient. Every datagram starts with a
+ * type byte:
+ * CONNECT [version int], repeated by the client until it is welcomed;
+ * WELCOME [version int][tileSize int][ticksPerSecond int][cols int][rows int][levels string];
+ * INPUT [sequence int][acked tick int][held buttons int], sent by the client every tick, which also
+ * acknowledges the latest snapshot it decoded;
+ * SNAPSHOT [tick int][baseline tick int][fragment byte][fragments byte][flags byte][SnapshotCodec bits],
+ * a snapshot split into fragments small enough to never be fragmented by IP;
+ * DISCONNECT, sent by a client that leaves.
+ */
+final class NetProtocol {
+    static final int VERSION = 1;
+    static final int MAX_PACKET = 1200; // Bytes; below the MTU of common networks and tunnels
+
+    static final byte CONNECT = 1;
+    static final byte WELCOME = 2;
+    static final byte INPUT = 3;
+    static final byte SNAPSHOT = 4;
+    static final byte DISCONNECT = 5;
+
+    static final int SNAPSHOT_HEADER = 12;
+    static final int MAX_FRAGMENT = MAX_PACKET - SNAPSHOT_HEADER; // Snapshot bytes per datagram
+    static final int MAX_FRAGMENTS = 255;
+
+    // Bits of the snapshot flags
+    static final int FLAG_OWNER = 1; // The receiving client controls the player
+
+    private NetProtocol() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
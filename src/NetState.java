@@ -0,0 +1,185 @@
+/**
+ * NetState is what clients see of a world at one tick: the player, enemy and boss positions and the HUD
+ * state. Positions are quantized to POSITION_UNIT pixels, which is finer than anything the renderer shows
+ * but halves the range the network has to carry. The server keeps recent states as delta baselines and
+ * clients keep the received ones for interpolation; arrays are reused and only grow, like RenderSnapshot.
+ */
+public class NetState {
+    static final int POSITION_SHIFT = 1; // Positions travel in units of 2 pixels
+    static final int POSITION_UNIT = 1 << POSITION_SHIFT;
+
+    // Bits of flags
+    static final int GAME_OVER = 1;
+    static final int LEVELING_UP = 1 << 1;
+    static final int BOSS_INTRO = 1 << 2;
+    static final int BOSS_BATTLE = 1 << 3;
+    static final int FLAG_BITS = 4;
+
+    static final NetState EMPTY = new NetState(); // Baseline of full snapshots, never written
+
+    int tick = -1; // -1 while the state holds nothing
+    int flags;
+    int level;
+    int levelFile; // Index of the level file, -1 on the generated map
+    int elapsedTime; // Seconds
+    int longestTime; // Seconds
+
+    // Positions in units of POSITION_UNIT pixels
+    int playerX, playerY;
+    int enemyCount;
+    int[] enemyX = new int[0];
+    int[] enemyY = new int[0];
+    int bossCount;
+    int[] bossX = new int[0];
+    int[] bossY = new int[0];
+
+    /**
+     * Copies the state of the world at its current tick.
+     */
+    void capture(GameWorld world) {
+        tick = (int) world.getClock().getTick();
+        flags = (world.isGameOver() ? GAME_OVER : 0)
+                | (world.isLevelingUp() ? LEVELING_UP : 0)
+                | (world.isBossIntroActive() ? BOSS_INTRO : 0)
+                | (world.isBossBattleActive() ? BOSS_BATTLE : 0);
+        level = world.getLevel();
+        levelFile = world.getLevelFileIndex();
+        elapsedTime = (int) world.getElapsedTime();
+        longestTime = (int) world.getLongestTime();
+
+        Player player = world.getPlayer();
+        playerX = quantize(player.getX());
+        playerY = quantize(player.getY());
+
+        EntityStore enemies = world.enemies;
+        setEnemyCount(enemies.size);
+        for (int i = 0; i < enemyCount; i++) {
+            enemyX[i] = quantize(enemies.x[i]);
+            enemyY[i] = quantize(enemies.y[i]);
+        }
+        EntityStore bosses = world.bosses;
+        setBossCount(bosses.size);
+        for (int i = 0; i < bossCount; i++) {
+            bossX[i] = quantize(bosses.x[i]);
+            bossY[i] = quantize(bosses.y[i]);
+        }
+    }
+
+    void copyFrom(NetState other) {
+        tick = other.tick;
+        copyHeader(other);
+        playerX = other.playerX;
+        playerY = other.playerY;
+        setEnemyCount(other.enemyCount);
+        System.arraycopy(other.enemyX, 0, enemyX, 0, enemyCount);
+        System.arraycopy(other.enemyY, 0, enemyY, 0, enemyCount);
+        setBossCount(other.bossCount);
+        System.arraycopy(other.bossX, 0, bossX, 0, bossCount);
+        System.arraycopy(other.bossY, 0, bossY, 0, bossCount);
+    }
+
+    /**
+     * Fills this state with the positions at a tick between two states, interpolated linearly. Entities
+     * are matched by index; those that only exist in one of the states, or jumped further than a tile
+     * (e.g. to fill a freed slot), are taken from the state nearest to the tick.
+     */
+    void interpolate(NetState from, NetState to, int atTick, int snapDistance) {
+        if (to.tick <= from.tick) {
+            copyFrom(to);
+            tick = atTick;
+            return;
+        }
+        double t = (double) (atTick - from.tick) / (to.tick - from.tick);
+        NetState nearest = t < 0.5 ? from : to;
+        tick = atTick;
+        copyHeader(nearest);
+        int snap = snapDistance >> POSITION_SHIFT;
+        playerX = lerp(from.playerX, to.playerX, t, snap, nearest == from);
+        playerY = lerp(from.playerY, to.playerY, t, snap, nearest == from);
+
+        setEnemyCount(nearest.enemyCount);
+        int shared = Math.min(from.enemyCount, to.enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            if (i < shared) {
+                enemyX[i] = lerp(from.enemyX[i], to.enemyX[i], t, snap, nearest == from);
+                enemyY[i] = lerp(from.enemyY[i], to.enemyY[i], t, snap, nearest == from);
+            } else {
+                enemyX[i] = nearest.enemyX[i];
+                enemyY[i] = nearest.enemyY[i];
+            }
+        }
+        setBossCount(nearest.bossCount);
+        shared = Math.min(from.bossCount, to.bossCount);
+        for (int i = 0; i < bossCount; i++) {
+            if (i < shared) {
+                bossX[i] = lerp(from.bossX[i], to.bossX[i], t, snap, nearest == from);
+                bossY[i] = lerp(from.bossY[i], to.bossY[i], t, snap, nearest == from);
+            } else {
+                bossX[i] = nearest.bossX[i];
+                bossY[i] = nearest.bossY[i];
+            }
+        }
+    }
+
+    /**
+     * Whether both states hold the same tick and the same values; used to check clients against the server.
+     */
+    boolean sameAs(NetState other) {
+        if (tick != other.tick || flags != other.flags || level != other.level || levelFile != other.levelFile
+                || elapsedTime != other.elapsedTime || longestTime != other.longestTime
+                || playerX != other.playerX || playerY != other.playerY
+                || enemyCount != other.enemyCount || bossCount != other.bossCount) {
+            return false;
+        }
+        for (int i = 0; i < enemyCount; i++) {
+            if (enemyX[i] != other.enemyX[i] || enemyY[i] != other.enemyY[i]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < bossCount; i++) {
+            if (bossX[i] != other.bossX[i] || bossY[i] != other.bossY[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void setEnemyCount(int count) {
+        if (enemyX.length < count) {
+            enemyX = new int[Math.max(count, enemyX.length * 2)];
+            enemyY = new int[enemyX.length];
+        }
+        enemyCount = count;
+    }
+
+    void setBossCount(int count) {
+        if (bossX.length < count) {
+            bossX = new int[Math.max(count, bossX.length * 2)];
+            bossY = new int[bossX.length];
+        }
+        bossCount = count;
+    }
+
+    private void copyHeader(NetState other) {
+        flags = other.flags;
+        level = other.level;
+        levelFile = other.levelFile;
+        elapsedTime = other.elapsedTime;
+        longestTime = other.longestTime;
+    }
+
+    private static int lerp(int from, int to, double t, int snap, boolean nearFrom) {
+        if (Math.abs(to - from) > snap) {
+            return nearFrom ? from : to;
+        }
+        return (int) Math.round(from + (to - from) * t);
+    }
+
+    static int quantize(int pixels) {
+        return (pixels + (POSITION_UNIT >> 1)) >> POSITION_SHIFT; // Rounds to the nearest unit
+    }
+
+    static int toPixels(int units) {
+        return units << POSITION_SHIFT;
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * NetworkRunner tests the network code over loopback: a GameServer driven by the bot and many GameClients
+ * run on one thread in real time, with both directions going through NetLink's simulated latency, jitter
+ * and loss. Every client's latest decoded state is compared with the state the server sent for that tick,
+ * and the run reports snapshot sizes, bandwidth and the server time spent per client.
+ *
+ * Usage: java NetworkRunner [clients] [seconds] [latencyMillis] [lossPercent] [enemies]
+ * The world is kept at no fewer than the given number of enemies, to test crowded worlds.
+ */
+public class NetworkRunner {
+    public static void main(String[] args) throws IOException {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int latency = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        double loss = (args.length > 3 ? Integer.parseInt(args[3]) : 5) / 100.0;
+        int enemies = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int jitter = latency / 5;
+        int ticksPerSecond = 60;
+
+        String levels = System.getProperty("game.levels", "");
+        GameWorld world = HeadlessRunner.createWorld(new TickClock(ticksPerSecond), 1,
+                Integer.getInteger("game.worldCols", 20), Integer.getInteger("game.worldRows", 20), levels);
+        world.setParticleCapacity(0);
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        NetLink serverLink = new NetLink(DatagramChannel.open().bind(new InetSocketAddress(loopback, 0)));
+        serverLink.simulate(latency, jitter, loss, 1);
+        SocketAddress serverAddress = serverLink.getChannel().getLocalAddress();
+        GameServer server = new GameServer(world, serverLink, levels, ticksPerSecond);
+        server.setController((w, input) -> {
+            HeadlessRunner.steerBot(w, input);
+            if (w.isGameOver()) {
+                input.setButtons(InputState.RETRY);
+            }
+        });
+
+        GameClient[] clients = new GameClient[clientCount];
+        NetLink[] clientLinks = new NetLink[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            clientLinks[i] = new NetLink(DatagramChannel.open().bind(new InetSocketAddress(loopback, 0)));
+            clientLinks[i].simulate(latency, jitter, loss, i + 2);
+            clients[i] = new GameClient(clientLinks[i], serverAddress);
+        }
+
+        int[] checkedTick = new int[clientCount];
+        long checked = 0;
+        long mismatches = 0;
+        long tickNanos = 1_000_000_000L / ticksPerSecond;
+        long ticks = (long) seconds * ticksPerSecond;
+        long nextTick = System.nanoTime();
+        for (long tick = 0; tick < ticks; tick++) {
+            if (world.enemies.size() < enemies) {
+                world.spawnWave(enemies - world.enemies.size()); // Again after every restart
+            }
+            server.tick();
+            for (int i = 0; i < clientCount; i++) {
+                GameClient client = clients[i];
+                client.poll();
+                if (!client.isConnected()) {
+                    if (tick % 15 == 0) {
+                        client.requestConnect();
+                    }
+                    continue;
+                }
+                client.sendInput(0);
+                client.advance();
+
+                NetState latest = client.getLatestState();
+                if (latest != null && latest.tick != checkedTick[i]) {
+                    checkedTick[i] = latest.tick;
+                    NetState sent = server.getState(latest.tick);
+                    if (sent != null) {
+                        checked++;
+                        if (!sent.sameAs(latest)) {
+                            mismatches++;
+                        }
+                    }
+                }
+            }
+
+            nextTick += tickNanos;
+            long wait;
+            while ((wait = nextTick - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(Math.min(wait, 1_000_000L));
+                server.receive();
+                serverLink.flush();
+                for (GameClient client : clients) {
+                    client.poll();
+                }
+            }
+        }
+
+        long decoded = 0;
+        long full = 0;
+        long clientBytes = 0;
+        for (GameClient client : clients) {
+            decoded += client.getSnapshotsDecoded();
+            full += client.getFullSnapshots();
+            clientBytes += client.getSnapshotBytes();
+            client.disconnect();
+        }
+        double sendMicros = server.getSendNanos() / 1e3 / ticks;
+        double perClient = sendMicros / Math.max(1, clientCount);
+        System.out.printf("%d clients, %ds, %d ms latency, %d ms jitter, %.0f%% loss, %d enemies at the end%n",
+                clientCount, seconds, latency, jitter, loss * 100, world.enemies.size());
+        System.out.printf("Server: %d snapshots, %.0f bytes each on average, %.1f KB/s per client in datagrams%n",
+                server.getSnapshotsSent(), (double) server.getSnapshotBytes() / Math.max(1, server.getSnapshotsSent()),
+                serverLink.getBytesSent() / 1024.0 / seconds / Math.max(1, clientCount));
+        System.out.printf("Server time for snapshots: %.1f us per tick, %.2f us per client, so about %.0f clients per core%n",
+                sendMicros, perClient, tickNanos / 1e3 / Math.max(perClient, 1e-3));
+        System.out.printf("Clients: %d snapshots decoded (%d full), %.0f bytes each on average, %d datagrams lost%n",
+                decoded, full, (double) clientBytes / Math.max(1, decoded), serverLink.getPacketsDropped());
+        System.out.printf("Checked %d decoded states against the server: %d mismatches%n", checked, mismatches);
+    }
+}
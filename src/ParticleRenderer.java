@@ -0,0 +1,85 @@
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * ParticleRenderer draws a ParticleSystem with a precomputed colour table: every palette entry has a few
+ * fade levels, particles are bucketed by colour with a counting sort and each bucket is drawn after a single
+ * setColor. Buffers are sized to the pool on first use, so drawing allocates nothing afterwards.
+ */
+public class ParticleRenderer {
+    private static final int FADE_LEVELS = 8;
+    private static final int MAX_ALPHA = 100;
+    private static final int PARTICLE_SIZE = 6;
+
+    // Base colour of each ParticleSystem palette index
+    private static final Color[] PALETTE = {
+            Color.RED, // PALETTE_HIT
+            Color.GRAY, // PALETTE_SPAWN
+            new Color(120, 0, 160), // PALETTE_BOSS
+    };
+
+    private final Color[] colors = new Color[ParticleSystem.PALETTE_SIZE * FADE_LEVELS];
+    private final int[] bucketStart = new int[colors.length + 1];
+    private final int[] bucketFill = new int[colors.length];
+    private int[] bucket = new int[0]; // Colour index of each particle
+    private int[] order = new int[0]; // Particle indices sorted by colour
+
+    public ParticleRenderer() {
+        for (int p = 0; p < ParticleSystem.PALETTE_SIZE; p++) {
+            Color base = PALETTE[p];
+            for (int level = 0; level < FADE_LEVELS; level++) {
+                int alpha = MAX_ALPHA * (level + 1) / FADE_LEVELS;
+                colors[p * FADE_LEVELS + level] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+            }
+        }
+    }
+
+    /**
+     * Draws all live particles, interpolated by alpha between the previous and current tick.
+     */
+    public void draw(Graphics2D g, ParticleSystem particles, double alpha, int cameraX, int cameraY) {
+        int n = particles.size;
+        if (n == 0) {
+            return;
+        }
+        if (order.length < particles.capacity) {
+            bucket = new int[particles.capacity];
+            order = new int[particles.capacity];
+        }
+
+        // Count the particles per colour: palette and how much of their life is left
+        Arrays.fill(bucketStart, 0);
+        for (int i = 0; i < n; i++) {
+            int remaining = particles.life[i] - particles.age[i];
+            int level = Math.min(FADE_LEVELS - 1, remaining * FADE_LEVELS / particles.life[i]);
+            int b = particles.palette[i] * FADE_LEVELS + level;
+            bucket[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b < colors.length; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+            bucketFill[b] = bucketStart[b];
+        }
+        for (int i = 0; i < n; i++) {
+            order[bucketFill[bucket[i]]++] = i;
+        }
+
+        // One setColor per bucket
+        float back = (float) (1 - alpha); // Position is x - v * (1 - alpha) between the two ticks
+        int half = PARTICLE_SIZE / 2;
+        for (int b = 0; b < colors.length; b++) {
+            int from = bucketStart[b];
+            int to = bucketStart[b + 1];
+            if (from == to) {
+                continue;
+            }
+            g.setColor(colors[b]);
+            for (int k = from; k < to; k++) {
+                int i = order[k];
+                int px = (int) (particles.x[i] - particles.vx[i] * back) - cameraX - half;
+                int py = (int) (particles.y[i] - particles.vy[i] * back) - cameraY - half;
+                g.fillRect(px, py, PARTICLE_SIZE, PARTICLE_SIZE);
+            }
+        }
+    }
+}
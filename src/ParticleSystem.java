@@ -0,0 +1,139 @@
+/**
+ * ParticleSystem keeps short-lived visual particles in fixed-capacity primitive arrays, advanced once per
+ * simulation tick. Live particles are packed at the front of the arrays and expired ones are removed by
+ * moving the last particle into their slot; when the pool is full, new particles overwrite live ones in
+ * ring order. Nothing is allocated after construction.
+ * Particles are purely cosmetic and use their own random stream, so they never change the game outcome.
+ */
+public class ParticleSystem {
+    // Palette indices, mapped to colours by the renderer
+    public static final byte PALETTE_HIT = 0;
+    public static final byte PALETTE_SPAWN = 1;
+    public static final byte PALETTE_BOSS = 2;
+    public static final int PALETTE_SIZE = 3;
+
+    private static final float DRAG = 0.92f; // Velocity kept per tick
+
+    final int capacity;
+    int size;
+    final float[] x;
+    final float[] y;
+    final float[] vx; // Pixels per tick
+    final float[] vy;
+    final short[] age; // Ticks lived
+    final short[] life; // Ticks until the particle expires
+    final byte[] palette;
+    private int recycle; // Next slot overwritten while the pool is full
+    private long rng;
+
+    public ParticleSystem(int capacity, long seed) {
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        age = new short[capacity];
+        life = new short[capacity];
+        palette = new byte[capacity];
+        rng = seed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        recycle = 0;
+    }
+
+    /**
+     * Makes this pool a copy of the live particles of another pool with the same capacity.
+     */
+    public void copyFrom(ParticleSystem source) {
+        int n = source.size;
+        System.arraycopy(source.x, 0, x, 0, n);
+        System.arraycopy(source.y, 0, y, 0, n);
+        System.arraycopy(source.vx, 0, vx, 0, n);
+        System.arraycopy(source.vy, 0, vy, 0, n);
+        System.arraycopy(source.age, 0, age, 0, n);
+        System.arraycopy(source.life, 0, life, 0, n);
+        System.arraycopy(source.palette, 0, palette, 0, n);
+        size = n;
+        recycle = source.recycle;
+    }
+
+    /**
+     * Ages and moves every particle by one tick and drops the expired ones.
+     */
+    public void tick() {
+        int i = 0;
+        while (i < size) {
+            int newAge = age[i] + 1;
+            if (newAge >= life[i]) {
+                remove(i); // Re-check slot i, it now holds the last particle
+                continue;
+            }
+            age[i] = (short) newAge;
+            x[i] += vx[i];
+            y[i] += vy[i];
+            vx[i] *= DRAG;
+            vy[i] *= DRAG;
+            i++;
+        }
+    }
+
+    /**
+     * Emits a burst of particles flying outwards from (centerX, centerY).
+     *
+     * @param speed Maximum initial speed in pixels per tick
+     * @param life  Maximum lifetime in ticks; each particle lives between half of it and all of it
+     */
+    public void emitBurst(float centerX, float centerY, int count, float speed, int life, byte palette) {
+        for (int k = 0; k < count; k++) {
+            double angle = nextDouble() * 2 * Math.PI;
+            double velocity = speed * (0.25 + 0.75 * nextDouble());
+            int ticks = Math.max(1, (int) (life * (0.5 + 0.5 * nextDouble())));
+            add(centerX, centerY, (float) (Math.cos(angle) * velocity), (float) (Math.sin(angle) * velocity),
+                    ticks, palette);
+        }
+    }
+
+    /**
+     * Adds one particle, overwriting slots in ring order when the pool is full.
+     */
+    public void add(float newX, float newY, float newVx, float newVy, int ticks, byte newPalette) {
+        int index;
+        if (size < capacity) {
+            index = size++;
+        } else {
+            index = recycle;
+            recycle = (recycle + 1) % capacity;
+        }
+        x[index] = newX;
+        y[index] = newY;
+        vx[index] = newVx;
+        vy[index] = newVy;
+        age[index] = 0;
+        life[index] = (short) Math.min(ticks, Short.MAX_VALUE);
+        palette[index] = newPalette;
+    }
+
+    private void remove(int index) {
+        int last = --size;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            vx[index] = vx[last];
+            vy[index] = vy[last];
+            age[index] = age[last];
+            life[index] = life[last];
+            palette[index] = palette[last];
+        }
+    }
+
+    private double nextDouble() {
+        rng = FastRandom.next(rng);
+        return FastRandom.toDouble(rng);
+    }
+}
@@ -0,0 +1,63 @@
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+
+/**
+ * PerfOverlay shows the PerfStats of the last complete window in the top left corner: p50, p99 and max
+ * per phase in milliseconds, ticks and frames per second, entity counts and the allocation rate.
+ * The text is laid out twice a second rather than every frame.
+ */
+public class PerfOverlay {
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final long REFRESH_NANOS = 500_000_000L;
+    private static final int LINES = PerfStats.PHASES + 3; // Header, phases, rates, entities
+    private static final int LINE_HEIGHT = 17;
+    private static final int MARGIN = 8;
+
+    private final PerfStats stats;
+    private final GlyphVector[] lines = new GlyphVector[LINES];
+    private int width;
+    private long nextRefresh;
+
+    public PerfOverlay(PerfStats stats) {
+        this.stats = stats;
+    }
+
+    public void draw(Graphics2D g, RenderSnapshot s) {
+        long now = System.nanoTime();
+        if (now - nextRefresh >= 0 || lines[0] == null) {
+            layout(g.getFontRenderContext(), s);
+            nextRefresh = now + REFRESH_NANOS;
+        }
+
+        g.setColor(BACKGROUND);
+        g.fillRect(MARGIN, MARGIN, width + 2 * MARGIN, LINES * LINE_HEIGHT + MARGIN);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < LINES; i++) {
+            g.drawGlyphVector(lines[i], 2 * MARGIN, MARGIN + (i + 1) * LINE_HEIGHT);
+        }
+    }
+
+    private void layout(FontRenderContext context, RenderSnapshot s) {
+        String[] text = new String[LINES];
+        text[0] = String.format("%-9s %7s %7s %7s", "ms", "p50", "p99", "max");
+        for (int phase = 0; phase < PerfStats.PHASES; phase++) {
+            LatencyHistogram h = stats.getCompleted(phase);
+            text[phase + 1] = String.format("%-9s %7.2f %7.2f %7.2f", PerfStats.NAMES[phase],
+                    h.percentile(0.5) / 1e6, h.percentile(0.99) / 1e6, h.getMax() / 1e6);
+        }
+        long rate = stats.getAllocationRate();
+        text[LINES - 2] = String.format("%d tps  %d fps  alloc %s",
+                stats.getCompleted(PerfStats.TICK).getCount(), stats.getCompleted(PerfStats.FRAME).getCount(),
+                rate < 0 ? "n/a" : String.format("%.1f MB/s", rate / 1e6));
+        text[LINES - 1] = String.format("enemies %d  bosses %d  particles %d",
+                s.enemyCount, s.bossCount, s.particles.size());
+
+        width = 0;
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = FONT.createGlyphVector(context, text[i]);
+            width = Math.max(width, (int) Math.ceil(lines[i].getLogicalBounds().getWidth()));
+        }
+    }
+}
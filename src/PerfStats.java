@@ -0,0 +1,113 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * PerfStats times the phases of each tick and frame into latency histograms, so spikes show up as p99 and
+ * max instead of disappearing in an average. Each phase is recorded by a single thread (simulation phases
+ * by the game thread, rendering phases by whichever thread renders) into a histogram of the current
+ * one-second window; when the window is over it is handed to readers such as PerfOverlay and a cleared
+ * histogram takes its place, so recording never allocates or locks.
+ * While disabled, start() returns 0 without reading the clock and stop() returns immediately.
+ */
+public class PerfStats {
+    // Simulation phases, timed on the game thread
+    public static final int TICK = 0; // The whole tick, including input and publishing the snapshot
+    public static final int PLAYER = 1;
+    public static final int ENEMIES = 2; // Enemy movement and the flow field they follow
+    public static final int BOSSES = 3;
+    public static final int SPAWNS = 4; // Scheduled spawns, level ups and boss battles
+    public static final int CAMERA = 5; // Camera and render snapshot
+    public static final int HISTORY = 6; // Input and checkpoints for rewinding
+    // Rendering phases, timed on the rendering thread
+    public static final int FRAME = 7; // The whole frame
+    public static final int MAP = 8;
+    public static final int ENTITIES = 9; // Player, enemies and bosses
+    public static final int PARTICLES = 10;
+    public static final int HUD = 11;
+    public static final int PHASES = 12;
+
+    static final String[] NAMES = {"tick", "player", "enemies", "bosses", "spawns", "camera", "history",
+            "frame", "map", "entities", "particles", "hud"};
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private volatile boolean enabled;
+    private final LatencyHistogram[] current = new LatencyHistogram[PHASES]; // Written by the phase's thread
+    private final long[] windowStart = new long[PHASES];
+    private final AtomicReferenceArray<LatencyHistogram> completed = new AtomicReferenceArray<>(PHASES);
+
+    // Bytes allocated per second by the thread that runs the ticks, or -1 if the JVM cannot tell
+    private final com.sun.management.ThreadMXBean threads;
+    private long allocatedBytes = -1; // Allocated by the tick thread when the last tick window started
+    private volatile long allocationRate = -1;
+
+    public PerfStats() {
+        for (int i = 0; i < PHASES; i++) {
+            current[i] = new LatencyHistogram();
+            completed.set(i, new LatencyHistogram());
+        }
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threads = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void toggle() {
+        enabled = !enabled;
+    }
+
+    /**
+     * Starts timing a phase; pass the result to stop().
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start() for the phase; does nothing if timing was disabled at the start.
+     */
+    public void stop(int phase, long start) {
+        if (start == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart[phase] >= WINDOW_NANOS) {
+            endWindow(phase, now);
+        }
+        current[phase].record(now - start);
+    }
+
+    /**
+     * The histogram of the last complete window of a phase. It is cleared and reused when the next window
+     * ends, so read it right away.
+     */
+    public LatencyHistogram getCompleted(int phase) {
+        return completed.get(phase);
+    }
+
+    public long getAllocationRate() {
+        return allocationRate;
+    }
+
+    private void endWindow(int phase, long now) {
+        LatencyHistogram done = current[phase];
+        current[phase] = completed.getAndSet(phase, done);
+        current[phase].reset();
+        if (phase == TICK && threads != null) {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            if (allocatedBytes >= 0) {
+                allocationRate = (long) ((allocated - allocatedBytes) * 1e9 / Math.max(1, now - windowStart[phase]));
+            }
+            allocatedBytes = allocated;
+        }
+        windowStart[phase] = now;
+    }
+}
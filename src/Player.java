@@ -1,15 +1,17 @@
-import java.awt.*;
-
 public class Player {
     // Player properties
     private int x;
     private int y;
+    private int prevX; // Position at the previous tick, used for render interpolation
+    private int prevY;
     private int speed;
     private final int tileSize;
 
     public Player(int startX, int startY, int speed, int tileSize) {
         this.x = startX;
         this.y = startY;
+        this.prevX = startX;
+        this.prevY = startY;
         this.speed = speed;
         this.tileSize = tileSize;
     }
@@ -22,7 +24,27 @@ public class Player {
         return y;
     }
 
-    public void move(int xSpeed, int ySpeed, int[][] map) {
+    public int getPrevX() {
+        return prevX;
+    }
+
+    public int getPrevY() {
+        return prevY;
+    }
+
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.prevX = x;
+        this.prevY = y;
+    }
+
+    public void savePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+
+    public void move(int xSpeed, int ySpeed, TileMap map) {
         // Calculate next position
         int nextX = x + xSpeed;
         int nextY = y + ySpeed;
@@ -37,12 +59,7 @@ public class Player {
         }
     }
 
-    private boolean isCollidingWithObstacle(int x, int y, int[][] map) {
-        return x >= 0 && y >= 0 && x < map[0].length && y < map.length && map[y][x] == 1;
-    }
-
-    public void draw(Graphics2D g2) {
-        g2.setColor(Color.black);
-        g2.fillRect(x, y, tileSize, tileSize);
+    private boolean isCollidingWithObstacle(int x, int y, TileMap map) {
+        return map.isSolid(x, y);
     }
 }
@@ -0,0 +1,175 @@
+/**
+ * RenderSnapshot is a copy of everything a frame needs: camera, player, enemy and boss positions for the
+ * previous and current tick, particles, the map and the HUD state. The game thread captures it at the end
+ * of a tick; once published through a SnapshotBuffer it is not written again until the renderer has moved
+ * on to a newer one, so rendering reads it without locks while the simulation keeps running.
+ * Arrays are reused between captures and only grow, so capturing does not allocate in steady state.
+ */
+public class RenderSnapshot {
+    long tick;
+
+    // Camera and player at the previous and the current tick
+    int cameraPrevX, cameraPrevY, cameraX, cameraY;
+    int playerPrevX, playerPrevY, playerX, playerY;
+
+    int enemyCount;
+    int[] enemyPrevX = new int[0];
+    int[] enemyPrevY = new int[0];
+    int[] enemyX = new int[0];
+    int[] enemyY = new int[0];
+
+    int bossCount;
+    int[] bossPrevX = new int[0];
+    int[] bossPrevY = new int[0];
+    int[] bossX = new int[0];
+    int[] bossY = new int[0];
+
+    final ParticleSystem particles;
+
+    final MapWindow map = new MapWindow(); // Chunks the view covers at the previous and current tick
+
+    // HUD state
+    boolean gameOver;
+    boolean canRewind; // The game over screen offers a rewind
+    boolean levelingUp;
+    boolean bossIntro;
+    boolean rewound; // Shows the rewind banner
+    int level;
+    long elapsedTime; // Seconds
+    long longestTime; // Seconds
+
+    RenderSnapshot(GameWorld world) {
+        this(world.particles.capacity);
+    }
+
+    RenderSnapshot(int particleCapacity) {
+        particles = new ParticleSystem(particleCapacity, 0);
+    }
+
+    /**
+     * Copies the current state of the world and camera into this snapshot.
+     */
+    void capture(GameWorld world, Camera camera) {
+        tick = world.getClock().getTick();
+
+        cameraPrevX = camera.getPrevX();
+        cameraPrevY = camera.getPrevY();
+        cameraX = camera.getX();
+        cameraY = camera.getY();
+
+        Player player = world.getPlayer();
+        playerPrevX = player.getPrevX();
+        playerPrevY = player.getPrevY();
+        playerX = player.getX();
+        playerY = player.getY();
+
+        EntityStore enemies = world.enemies;
+        enemyCount = enemies.size;
+        enemyPrevX = copy(enemies.prevX, enemyPrevX, enemyCount);
+        enemyPrevY = copy(enemies.prevY, enemyPrevY, enemyCount);
+        enemyX = copy(enemies.x, enemyX, enemyCount);
+        enemyY = copy(enemies.y, enemyY, enemyCount);
+
+        EntityStore bosses = world.bosses;
+        bossCount = bosses.size;
+        bossPrevX = copy(bosses.prevX, bossPrevX, bossCount);
+        bossPrevY = copy(bosses.prevY, bossPrevY, bossCount);
+        bossX = copy(bosses.x, bossX, bossCount);
+        bossY = copy(bosses.y, bossY, bossCount);
+
+        particles.copyFrom(world.particles);
+
+        captureMap(world.getMap(), world.tileSize, camera);
+
+        gameOver = world.isGameOver();
+        canRewind = world.getHistory() != null;
+        levelingUp = world.isLevelingUp();
+        bossIntro = world.isBossIntroActive();
+        rewound = world.isRewindBannerActive();
+        level = world.getLevel();
+        elapsedTime = world.getElapsedTime();
+        longestTime = world.getLongestTime();
+    }
+
+    /**
+     * Copies the state a GameClient is playing back into this snapshot, in pixels. Entities missing from
+     * the client's previous state are drawn without interpolation; there are no particles.
+     */
+    void capture(GameClient client, Camera camera, TileMap map) {
+        NetState previous = client.previous;
+        NetState current = client.current;
+        tick = current.tick;
+
+        cameraPrevX = camera.getPrevX();
+        cameraPrevY = camera.getPrevY();
+        cameraX = camera.getX();
+        cameraY = camera.getY();
+
+        playerPrevX = NetState.toPixels(previous.playerX);
+        playerPrevY = NetState.toPixels(previous.playerY);
+        playerX = NetState.toPixels(current.playerX);
+        playerY = NetState.toPixels(current.playerY);
+
+        enemyCount = current.enemyCount;
+        enemyPrevX = grow(enemyPrevX, enemyCount);
+        enemyPrevY = grow(enemyPrevY, enemyCount);
+        enemyX = grow(enemyX, enemyCount);
+        enemyY = grow(enemyY, enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            enemyX[i] = NetState.toPixels(current.enemyX[i]);
+            enemyY[i] = NetState.toPixels(current.enemyY[i]);
+            boolean known = i < previous.enemyCount;
+            enemyPrevX[i] = known ? NetState.toPixels(previous.enemyX[i]) : enemyX[i];
+            enemyPrevY[i] = known ? NetState.toPixels(previous.enemyY[i]) : enemyY[i];
+        }
+
+        bossCount = current.bossCount;
+        bossPrevX = grow(bossPrevX, bossCount);
+        bossPrevY = grow(bossPrevY, bossCount);
+        bossX = grow(bossX, bossCount);
+        bossY = grow(bossY, bossCount);
+        for (int i = 0; i < bossCount; i++) {
+            bossX[i] = NetState.toPixels(current.bossX[i]);
+            bossY[i] = NetState.toPixels(current.bossY[i]);
+            boolean known = i < previous.bossCount;
+            bossPrevX[i] = known ? NetState.toPixels(previous.bossX[i]) : bossX[i];
+            bossPrevY[i] = known ? NetState.toPixels(previous.bossY[i]) : bossY[i];
+        }
+
+        particles.clear();
+
+        captureMap(map, client.getTileSize(), camera);
+
+        gameOver = (current.flags & NetState.GAME_OVER) != 0;
+        levelingUp = (current.flags & NetState.LEVELING_UP) != 0;
+        bossIntro = (current.flags & NetState.BOSS_INTRO) != 0;
+        level = current.level;
+        elapsedTime = current.elapsedTime;
+        longestTime = current.longestTime;
+    }
+
+    /**
+     * Copies the map chunks under the camera's view at the previous and the current tick, so every
+     * interpolated camera position between them is covered.
+     */
+    private void captureMap(TileMap source, int tileSize, Camera camera) {
+        int left = Math.min(camera.getPrevX(), camera.getX());
+        int top = Math.min(camera.getPrevY(), camera.getY());
+        int right = Math.max(camera.getPrevX(), camera.getX()) + camera.getScreenWidth() - 1;
+        int bottom = Math.max(camera.getPrevY(), camera.getY()) + camera.getScreenHeight() - 1;
+        map.capture(source, Math.floorDiv(left, tileSize), Math.floorDiv(top, tileSize),
+                Math.floorDiv(right, tileSize), Math.floorDiv(bottom, tileSize));
+    }
+
+    private static int[] grow(int[] array, int count) {
+        return array.length < count ? new int[Math.max(count, array.length * 2)] : array;
+    }
+
+    private static int[] copy(int[] source, int[] target, int count) {
+        if (target.length < count) {
+            target = new int[Math.max(count, target.length * 2)];
+        }
+        System.arraycopy(source, 0, target, 0, count);
+        return target;
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.Random;
+
+/**
+ * RestorableRandom produces exactly the numbers of java.util.Random for the same seed, but its state can be
+ * read and set, so a world snapshot can capture where the stream is and a restored world draws the same
+ * numbers again. Random keeps its state private, so the generator step is repeated here.
+ */
+public class RestorableRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state; // Set by setSeed(), which Random's constructor calls
+
+    public RestorableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed); // Clears the cached Gaussian
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * The generator's 48-bit state.
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
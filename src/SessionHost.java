@@ -0,0 +1,273 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SessionHost runs many independent headless matches in one JVM. Every Session owns its GameWorld, clock
+ * and input, so matches share no state. Instead of a thread per match, one host thread paces rounds and
+ * each round steps every session by one tick on a ForkJoinPool whose parallelism caps the CPU the host
+ * uses, parallel enemy updates of its worlds included; sessions are handed out in small batches, so the
+ * threads stay busy when some matches are much more crowded than others. Rounds follow the tick rate in
+ * real time, or run back to back to simulate as fast as possible.
+ *
+ * Usage: java SessionHost [sessions] [simulatedSeconds] [threads]
+ * -Dgame.realtime=true paces the matches in real time, e.g. for hosting them.
+ */
+public class SessionHost {
+    private static final int SESSIONS_PER_TASK = 4; // Batch size below which a round task stops splitting
+
+    /**
+     * Decides the input of a session's player for the next tick, e.g. a bot or a remote player.
+     */
+    public interface Controller {
+        void control(GameWorld world, InputState input);
+    }
+
+    /**
+     * Receives sessions that reached their tick limit or failed; called on the host thread.
+     */
+    public interface Listener {
+        void onSessionFinished(Session session);
+    }
+
+    /**
+     * One match: a world stepped by the host, driven by a controller and restarted after every game over.
+     */
+    public static class Session {
+        final int id;
+        final GameWorld world;
+        private final Controller controller;
+        private final InputState input = new InputState();
+        private final long tickLimit; // 0 to run until removed
+        private int deaths;
+        private long levels; // Sum of the levels reached by the finished runs
+        private RuntimeException failure;
+
+        public Session(int id, GameWorld world, Controller controller, long tickLimit) {
+            this.id = id;
+            this.world = world;
+            this.controller = controller;
+            this.tickLimit = tickLimit;
+        }
+
+        public int getDeaths() {
+            return deaths;
+        }
+
+        /**
+         * Average level at game over, or the current level if the player never died.
+         */
+        public double getAverageLevel() {
+            return deaths > 0 ? (double) levels / deaths : world.getLevel();
+        }
+
+        /**
+         * The exception that stopped the session, or null.
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        boolean isFinished() {
+            return failure != null || tickLimit > 0 && world.getClock().getTick() >= tickLimit;
+        }
+
+        void tick() {
+            try {
+                controller.control(world, input);
+                world.applyInput(input);
+                world.step(1);
+                if (world.isGameOver()) {
+                    deaths++;
+                    levels += world.getLevel();
+                    world.restart();
+                }
+            } catch (RuntimeException e) {
+                failure = e; // Only this match is lost; the host removes it after the round
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long tickNanos; // 0 to run rounds back to back
+    private final ConcurrentLinkedQueue<Session> added = new ConcurrentLinkedQueue<>();
+    private Listener listener = session -> {
+    };
+    private volatile boolean running;
+
+    // Sessions being stepped, only touched by the host thread between rounds
+    private Session[] sessions = new Session[16];
+    private int count;
+
+    private long rounds;
+    private long lateRounds; // Rounds that started behind schedule in real time
+
+    /**
+     * @param threads        Most threads stepping sessions at the same time
+     * @param ticksPerSecond Round rate in real time, or 0 to run as fast as possible
+     */
+    public SessionHost(int threads, int ticksPerSecond) {
+        if (threads <= 0 || ticksPerSecond < 0) {
+            throw new IllegalArgumentException("Thread count must be positive and the tick rate not negative");
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.tickNanos = ticksPerSecond > 0 ? 1_000_000_000L / ticksPerSecond : 0;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Adds a session; it joins at the start of the next round. Safe to call from any thread.
+     */
+    public void add(Session session) {
+        added.add(session);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public long getRounds() {
+        return rounds;
+    }
+
+    public long getLateRounds() {
+        return lateRounds;
+    }
+
+    /**
+     * Steps the sessions on the calling thread until stop() is called or, when not paced in real time,
+     * until every session has finished.
+     */
+    public void run() {
+        running = true;
+        long nextRound = System.nanoTime();
+        try {
+            while (running) {
+                addPending();
+                if (count == 0 && tickNanos == 0) {
+                    break;
+                }
+                if (count > 0) {
+                    pool.invoke(new RoundTask(0, count));
+                }
+                removeFinished();
+                rounds++;
+
+                if (tickNanos > 0) {
+                    nextRound += tickNanos;
+                    long now = System.nanoTime();
+                    if (now > nextRound) {
+                        lateRounds++;
+                        if (now - nextRound > tickNanos) {
+                            nextRound = now; // More than a round behind: drop the backlog
+                        }
+                    } else {
+                        LockSupport.parkNanos(nextRound - now);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void addPending() {
+        for (Session session = added.poll(); session != null; session = added.poll()) {
+            if (count == sessions.length) {
+                sessions = Arrays.copyOf(sessions, count * 2);
+            }
+            session.world.setEnemyUpdatePool(pool); // Parallel enemy updates stay within the host's threads
+            sessions[count++] = session;
+        }
+    }
+
+    private void removeFinished() {
+        for (int i = count - 1; i >= 0; i--) {
+            Session session = sessions[i];
+            if (session.isFinished()) {
+                sessions[i] = sessions[--count];
+                sessions[count] = null;
+                if (session.failure != null) {
+                    System.err.println("Session " + session.id + " failed: " + session.failure.getMessage());
+                    session.failure.printStackTrace();
+                }
+                listener.onSessionFinished(session);
+            }
+        }
+    }
+
+    /**
+     * Steps a range of sessions by one tick, splitting it until the batches are small.
+     */
+    private class RoundTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        RoundTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SESSIONS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    sessions[i].tick();
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RoundTask(from, mid), new RoundTask(mid, to));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long simulatedSeconds = args.length > 1 ? Long.parseLong(args[1]) : 600;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int ticksPerSecond = 60;
+        boolean realTime = Boolean.getBoolean("game.realtime");
+
+        SessionHost host = new SessionHost(threads, realTime ? ticksPerSecond : 0);
+        long[] deaths = new long[1];
+        double[] levels = new double[1];
+        int[] finished = new int[1];
+        host.setListener(session -> {
+            deaths[0] += session.getDeaths();
+            levels[0] += session.getAverageLevel();
+            if (++finished[0] == sessionCount) {
+                host.stop(); // A real-time host would otherwise wait for more sessions
+            }
+        });
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        Session[] created = new Session[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            GameWorld world = new GameWorld(new TickClock(ticksPerSecond), i + 1, 60, 20, 20);
+            world.setParticleCapacity(0); // Nobody watches these matches
+            created[i] = new Session(i, world, HeadlessRunner::steerBot, simulatedSeconds * ticksPerSecond);
+            host.add(created[i]);
+        }
+        System.gc();
+        long heapPerSession = (runtime.totalMemory() - runtime.freeMemory() - heapBefore) / Math.max(1, sessionCount);
+
+        long wallStart = System.nanoTime();
+        host.run();
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+        long sessionTicks = sessionCount * simulatedSeconds * ticksPerSecond;
+        System.out.printf("%d sessions x %ds on %d threads in %.2fs: %.0f session ticks/s, %.2f us per session tick%n",
+                sessionCount, simulatedSeconds, threads, wallSeconds, sessionTicks / wallSeconds,
+                wallSeconds * 1e6 * threads / sessionTicks);
+        System.out.printf("%d rounds, %d late, about %d KB heap per session, %d deaths, average level %.2f%n",
+                host.getRounds(), host.getLateRounds(), heapPerSession / 1024, deaths[0],
+                levels[0] / Math.max(1, sessionCount));
+    }
+}
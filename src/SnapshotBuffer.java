@@ -0,0 +1,63 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnapshotBuffer hands RenderSnapshots from the game thread to the rendering thread with triple buffering.
+ * The writer fills its back snapshot and atomically swaps it with the shared middle slot; the reader swaps
+ * its front snapshot with the middle slot only when a newer one was published. Neither side ever waits, the
+ * reader always sees the latest complete tick, and a snapshot is never written while it is being drawn.
+ */
+public class SnapshotBuffer {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4; // Set on the middle slot until the reader takes it
+
+    private final RenderSnapshot[] snapshots = new RenderSnapshot[3];
+    private final AtomicInteger middle = new AtomicInteger(1); // Index of the middle snapshot, plus FRESH
+    private int back = 0; // Only used by the writer
+    private int front = 2; // Only used by the reader
+
+    /**
+     * Creates the buffer with all snapshots holding the current state.
+     */
+    public SnapshotBuffer(GameWorld world, Camera camera) {
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new RenderSnapshot(world);
+            snapshots[i].capture(world, camera);
+        }
+    }
+
+    /**
+     * Creates the buffer for a GameClient, with all snapshots holding the state it is playing back.
+     */
+    public SnapshotBuffer(GameClient client, Camera camera, TileMap map) {
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new RenderSnapshot(0);
+            snapshots[i].capture(client, camera, map);
+        }
+    }
+
+    /**
+     * Captures the world into the back snapshot and publishes it; called by the game thread after a tick.
+     */
+    public void publish(GameWorld world, Camera camera) {
+        snapshots[back].capture(world, camera);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Captures the state a GameClient is playing back into the back snapshot and publishes it.
+     */
+    public void publish(GameClient client, Camera camera, TileMap map) {
+        snapshots[back].capture(client, camera, map);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest published snapshot; it stays valid until the next call.
+     */
+    public RenderSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return snapshots[front];
+    }
+}
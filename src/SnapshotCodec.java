@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * SnapshotCodec packs a NetState into bits as a delta against a baseline state that the receiver already
+ * has, the last one it acknowledged, or NetState.EMPTY for a full snapshot. Header fields cost one bit
+ * when unchanged. Positions are sent as zigzag-coded differences to the baseline entity with the same
+ * index (to 0 for new entities), so entities that moved a few pixels cost a few bits per axis. Each block
+ * of values picks the bit width that makes it smallest; values that do not fit are escaped and written at
+ * full width, so a single teleported entity does not widen the whole block.
+ * A codec reuses its scratch array and allocates nothing once it has grown; use one per thread.
+ */
+public class SnapshotCodec {
+    private static final int WIDTH_BITS = 6; // Bit width of a block, 0 to 32
+    private static final int COUNT_BITS = 24;
+    private static final int HEADER_BITS = 32;
+
+    private int[] values = new int[64]; // Zigzag-coded differences of the block being written or read
+    private final int[] widthCounts = new int[34];
+
+    /**
+     * Writes the state as a delta against the baseline; the tick is not included.
+     */
+    public void write(NetState state, NetState baseline, BitWriter out) {
+        out.write(state.flags, NetState.FLAG_BITS);
+        writeHeader(state.level, baseline.level, out);
+        writeHeader(state.levelFile, baseline.levelFile, out);
+        writeHeader(state.elapsedTime, baseline.elapsedTime, out);
+        writeHeader(state.longestTime, baseline.longestTime, out);
+
+        int[] block = values(2);
+        block[0] = zigzag(state.playerX - baseline.playerX);
+        block[1] = zigzag(state.playerY - baseline.playerY);
+        writeBlock(block, 2, out);
+
+        writeHeader(state.enemyCount, baseline.enemyCount, out);
+        writePositions(state.enemyX, state.enemyY, state.enemyCount,
+                baseline.enemyX, baseline.enemyY, baseline.enemyCount, out);
+        writeHeader(state.bossCount, baseline.bossCount, out);
+        writePositions(state.bossX, state.bossY, state.bossCount,
+                baseline.bossX, baseline.bossY, baseline.bossCount, out);
+    }
+
+    /**
+     * Reads a state written against the given baseline into target, which must not be the baseline.
+     *
+     * @return false if the data ended early
+     */
+    public boolean read(NetState baseline, BitReader in, NetState target, int tick) {
+        target.tick = tick;
+        target.flags = in.read(NetState.FLAG_BITS);
+        target.level = readHeader(baseline.level, in);
+        target.levelFile = readHeader(baseline.levelFile, in);
+        target.elapsedTime = readHeader(baseline.elapsedTime, in);
+        target.longestTime = readHeader(baseline.longestTime, in);
+
+        int[] block = readBlock(2, in);
+        target.playerX = baseline.playerX + unzigzag(block[0]);
+        target.playerY = baseline.playerY + unzigzag(block[1]);
+
+        int enemies = readHeader(baseline.enemyCount, in);
+        if (enemies < 0 || enemies >= 1 << COUNT_BITS || in.isOverrun()) {
+            return false;
+        }
+        target.setEnemyCount(enemies);
+        readPositions(target.enemyX, target.enemyY, enemies,
+                baseline.enemyX, baseline.enemyY, baseline.enemyCount, in);
+        int bosses = readHeader(baseline.bossCount, in);
+        if (bosses < 0 || bosses >= 1 << COUNT_BITS || in.isOverrun()) {
+            return false;
+        }
+        target.setBossCount(bosses);
+        readPositions(target.bossX, target.bossY, bosses,
+                baseline.bossX, baseline.bossY, baseline.bossCount, in);
+        return !in.isOverrun();
+    }
+
+    private void writePositions(int[] xs, int[] ys, int count, int[] baseX, int[] baseY, int baseCount,
+                                BitWriter out) {
+        int[] block = values(2 * count);
+        int shared = Math.min(count, baseCount);
+        for (int i = 0; i < count; i++) {
+            block[2 * i] = zigzag(xs[i] - (i < shared ? baseX[i] : 0));
+            block[2 * i + 1] = zigzag(ys[i] - (i < shared ? baseY[i] : 0));
+        }
+        writeBlock(block, 2 * count, out);
+    }
+
+    private void readPositions(int[] xs, int[] ys, int count, int[] baseX, int[] baseY, int baseCount,
+                               BitReader in) {
+        int[] block = readBlock(2 * count, in);
+        int shared = Math.min(count, baseCount);
+        for (int i = 0; i < count; i++) {
+            xs[i] = (i < shared ? baseX[i] : 0) + unzigzag(block[2 * i]);
+            ys[i] = (i < shared ? baseY[i] : 0) + unzigzag(block[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Writes unsigned values at the narrow width that makes the block smallest. Values that do not fit are
+     * escaped with the all-ones code of the narrow width followed by the value at the wide width, the width
+     * of the largest value; when nothing is gained, the narrow width is the wide one and nothing escapes.
+     */
+    private void writeBlock(int[] block, int count, BitWriter out) {
+        // widthCounts[b]: values whose value + 1 needs b bits, i.e. values escaping at any width below b
+        Arrays.fill(widthCounts, 0);
+        int wide = 0;
+        for (int i = 0; i < count; i++) {
+            long value = block[i] & 0xFFFFFFFFL;
+            widthCounts[64 - Long.numberOfLeadingZeros(value + 1)]++;
+            wide = Math.max(wide, 64 - Long.numberOfLeadingZeros(value));
+        }
+        int narrow = wide;
+        long best = (long) count * wide;
+        int escaped = 0;
+        for (int w = widthCounts.length - 1; w >= 0; w--) {
+            if (w < wide) {
+                long size = (long) count * w + (long) escaped * wide;
+                if (size < best) {
+                    best = size;
+                    narrow = w;
+                }
+            }
+            escaped += widthCounts[w]; // Values with w bits escape at widths below w
+        }
+
+        out.write(wide, WIDTH_BITS);
+        out.write(narrow, WIDTH_BITS);
+        int escape = (1 << narrow) - 1;
+        for (int i = 0; i < count; i++) {
+            int value = block[i];
+            if (narrow == wide) {
+                out.write(value, wide);
+            } else if ((value & 0xFFFFFFFFL) < escape) {
+                out.write(value, narrow);
+            } else {
+                out.write(escape, narrow);
+                out.write(value, wide);
+            }
+        }
+    }
+
+    private int[] readBlock(int count, BitReader in) {
+        int[] block = values(count);
+        int wide = in.read(WIDTH_BITS);
+        int narrow = in.read(WIDTH_BITS);
+        if (wide > 32 || narrow > wide) {
+            wide = narrow = 0; // Corrupt; the caller sees the overrun or a mismatch
+        }
+        int escape = (1 << narrow) - 1;
+        for (int i = 0; i < count; i++) {
+            if (narrow == wide) {
+                block[i] = in.read(wide);
+            } else {
+                int value = in.read(narrow);
+                block[i] = value == escape ? in.read(wide) : value;
+            }
+        }
+        return block;
+    }
+
+    private void writeHeader(int value, int baseline, BitWriter out) {
+        if (value == baseline) {
+            out.write(0, 1);
+        } else {
+            out.write(1, 1);
+            out.write(value, HEADER_BITS);
+        }
+    }
+
+    private int readHeader(int baseline, BitReader in) {
+        return in.read(1) == 0 ? baseline : in.read(HEADER_BITS);
+    }
+
+    private int[] values(int count) {
+        if (values.length < count) {
+            values = new int[Math.max(count, values.length * 2)];
+        }
+        return values;
+    }
+
+    private static int zigzag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    private static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,182 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SoundEffects is a small software mixer for short effects. Samples are decoded once into stereo 16-bit
+ * arrays, and a fixed pool of voices is mixed into the music thread's output block, so any number of
+ * overlapping effects share the one audio line. When every voice is busy, a new effect takes over the
+ * voice with the lowest priority, provided that is not higher than its own.
+ * play() only writes into a preallocated single-producer/single-consumer command ring that the audio
+ * thread drains once per block, so triggering an effect never allocates or locks.
+ */
+public class SoundEffects {
+    private static final int MAX_VOICES = 32;
+    private static final int COMMAND_CAPACITY = 256; // Power of two
+
+    private final ArrayList<short[]> samples = new ArrayList<>(); // Interleaved stereo, indexed by sample id
+
+    // Play commands from the game thread
+    private final int[] commandSample = new int[COMMAND_CAPACITY];
+    private final float[] commandGain = new float[COMMAND_CAPACITY];
+    private final float[] commandPan = new float[COMMAND_CAPACITY];
+    private final int[] commandPriority = new int[COMMAND_CAPACITY];
+    private final AtomicLong commandHead = new AtomicLong(); // Written by the audio thread
+    private final AtomicLong commandTail = new AtomicLong(); // Written by the producer
+
+    // Voices, audio thread only; voiceSample is -1 for a free voice
+    private final int[] voiceSample = new int[MAX_VOICES];
+    private final int[] voicePosition = new int[MAX_VOICES]; // Next frame to play
+    private final float[] voiceGainLeft = new float[MAX_VOICES];
+    private final float[] voiceGainRight = new float[MAX_VOICES];
+    private final int[] voicePriority = new int[MAX_VOICES];
+    private short[][] sampleTable = new short[0][]; // Snapshot of samples for the audio thread
+
+    public SoundEffects() {
+        Arrays.fill(voiceSample, -1);
+    }
+
+    /**
+     * Decodes a sound file and returns its sample id. Files that can't be read are reported and play silence;
+     * effect files are optional, so a missing one only gets a line on stderr.
+     * Load all samples before the audio thread starts mixing.
+     */
+    public int load(Path path, AudioFormat format) {
+        short[] data = new short[0];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path));
+             AudioInputStream source = AudioSystem.getAudioInputStream(in)) {
+            AudioFormat sourceFormat = source.getFormat();
+            int channels = sourceFormat.getChannels();
+            if (sourceFormat.getSampleRate() != format.getSampleRate() || channels > 2) {
+                throw new UnsupportedAudioFileException("Effects must be mono or stereo at "
+                        + format.getSampleRate() + " Hz: " + path);
+            }
+            AudioFormat target = new AudioFormat(format.getSampleRate(), 16, channels, true, false);
+            AudioInputStream pcm = sourceFormat.matches(target) ? source : AudioSystem.getAudioInputStream(target, source);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            pcm.transferTo(bytes);
+            byte[] raw = bytes.toByteArray();
+
+            int frames = raw.length / (2 * channels);
+            data = new short[frames * 2];
+            for (int frame = 0; frame < frames; frame++) {
+                for (int c = 0; c < 2; c++) {
+                    int offset = (frame * channels + Math.min(c, channels - 1)) * 2; // Mono feeds both channels
+                    data[frame * 2 + c] = (short) ((raw[offset] & 0xFF) | raw[offset + 1] << 8);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            System.err.println("Sound effect not found, playing nothing instead: " + path);
+        } catch (IOException | UnsupportedAudioFileException e) {
+            System.err.println("Error loading sound effect: " + e.getMessage());
+            e.printStackTrace();
+        }
+        samples.add(data);
+        sampleTable = samples.toArray(new short[0][]);
+        return samples.size() - 1;
+    }
+
+    /**
+     * Starts an effect; called from a single thread (the game thread). Dropped if the command ring is full
+     * or the sample is empty, e.g. because its file is missing.
+     *
+     * @param gain     0..1
+     * @param pan      -1 (left) .. 1 (right)
+     * @param priority Higher priorities steal voices from lower ones when all voices are busy
+     */
+    public void play(int sample, float gain, float pan, int priority) {
+        long t = commandTail.get();
+        if (t - commandHead.get() == COMMAND_CAPACITY || samples.get(sample).length == 0) {
+            return;
+        }
+        int slot = (int) (t & (COMMAND_CAPACITY - 1));
+        commandSample[slot] = sample;
+        commandGain[slot] = gain;
+        commandPan[slot] = pan;
+        commandPriority[slot] = priority;
+        commandTail.lazySet(t + 1);
+    }
+
+    /**
+     * Starts the queued effects and adds all playing voices to an interleaved stereo block; audio thread only.
+     */
+    void mixInto(float[] mix, int frames) {
+        drainCommands();
+        short[][] table = sampleTable;
+        for (int v = 0; v < MAX_VOICES; v++) {
+            int sample = voiceSample[v];
+            if (sample < 0) {
+                continue;
+            }
+            short[] data = table[sample];
+            int position = voicePosition[v];
+            int count = Math.min(frames, data.length / 2 - position);
+            float left = voiceGainLeft[v];
+            float right = voiceGainRight[v];
+            for (int frame = 0; frame < count; frame++) {
+                int i = (position + frame) * 2;
+                mix[frame * 2] += data[i] * left;
+                mix[frame * 2 + 1] += data[i + 1] * right;
+            }
+            position += count;
+            if (position * 2 >= data.length) {
+                voiceSample[v] = -1; // Finished
+            } else {
+                voicePosition[v] = position;
+            }
+        }
+    }
+
+    private void drainCommands() {
+        long h = commandHead.get();
+        long t = commandTail.get();
+        for (; h < t; h++) {
+            int slot = (int) (h & (COMMAND_CAPACITY - 1));
+            int sample = commandSample[slot];
+            if (sample < 0 || sample >= sampleTable.length || sampleTable[sample].length == 0) {
+                continue;
+            }
+            int voice = pickVoice(commandPriority[slot]);
+            if (voice < 0) {
+                continue; // Everything playing is more important
+            }
+            // Equal-power panning
+            double angle = (Math.max(-1f, Math.min(1f, commandPan[slot])) + 1) * Math.PI / 4;
+            voiceSample[voice] = sample;
+            voicePosition[voice] = 0;
+            voiceGainLeft[voice] = (float) (commandGain[slot] * Math.cos(angle));
+            voiceGainRight[voice] = (float) (commandGain[slot] * Math.sin(angle));
+            voicePriority[voice] = commandPriority[slot];
+        }
+        commandHead.lazySet(h);
+    }
+
+    /**
+     * Returns a free voice, or the lowest-priority voice (the furthest along among equals) if its priority
+     * does not exceed the given one, or -1.
+     */
+    private int pickVoice(int priority) {
+        int best = -1;
+        for (int v = 0; v < MAX_VOICES; v++) {
+            if (voiceSample[v] < 0) {
+                return v;
+            }
+            if (voicePriority[v] <= priority && (best < 0 || voicePriority[v] < voicePriority[best]
+                    || (voicePriority[v] == voicePriority[best] && voicePosition[v] > voicePosition[best]))) {
+                best = v;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.Arrays;
+
+/**
+ * SpatialHashGrid buckets entities by the tile-sized cell that contains their position, so that
+ * neighbour searches within one cell size only look at the 3x3 surrounding cells instead of every entity.
+ * Entities are identified by their index in the owning list and are kept in per-bucket doubly linked
+ * lists stored in int arrays, which makes insert and move O(1) without allocating.
+ */
+public class SpatialHashGrid {
+
+    /**
+     * Reusable result buffer for neighbour queries; grows on demand.
+     */
+    public static class Neighbors {
+        int[] indices = new int[16];
+        int count;
+        final int[] visitedBuckets = new int[9];
+
+        public int size() {
+            return count;
+        }
+
+        public int get(int i) {
+            return indices[i];
+        }
+
+        private void add(int index) {
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+            indices[count++] = index;
+        }
+    }
+
+    private static final int EMPTY = -1;
+
+    private final int cellSize;
+    private int[] heads; // Bucket -> first entity index
+    private int mask;
+    private int[] next = new int[0]; // Entity -> next entity in the same bucket
+    private int[] prev = new int[0]; // Entity -> previous entity in the same bucket
+    private int[] bucketOf = new int[0]; // Entity -> bucket it is linked into
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private int size;
+
+    public SpatialHashGrid(int cellSize) {
+        this.cellSize = cellSize;
+        this.heads = new int[64];
+        this.mask = heads.length - 1;
+        Arrays.fill(heads, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        Arrays.fill(heads, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Adds the entity with the next free index; indices must be inserted in order 0, 1, 2, ...
+     */
+    public void insert(int index, int x, int y) {
+        if (index != size) {
+            throw new IllegalArgumentException("Expected index " + size + " but got " + index);
+        }
+        ensureCapacity(index + 1);
+        xs[index] = x;
+        ys[index] = y;
+        size++;
+        if (size > heads.length / 2) {
+            resize(heads.length * 2); // Relinks every entity, including this one
+        } else {
+            link(index, bucket(x, y));
+        }
+    }
+
+    /**
+     * Updates the position of an entity, relinking it only when its bucket changes.
+     */
+    public void move(int index, int x, int y) {
+        xs[index] = x;
+        ys[index] = y;
+        int bucket = bucket(x, y);
+        if (bucket != bucketOf[index]) {
+            unlink(index);
+            link(index, bucket);
+        }
+    }
+
+    /**
+     * Removes an entity by moving the last entity into its slot, mirroring a swap-remove on the owning list.
+     */
+    public void swapRemove(int index) {
+        int last = size - 1;
+        unlink(index);
+        if (index != last) {
+            unlink(last);
+            xs[index] = xs[last];
+            ys[index] = ys[last];
+            link(index, bucket(xs[index], ys[index]));
+        }
+        size--;
+    }
+
+    /**
+     * Whether two positions fall into the same grid cell.
+     */
+    public boolean sameCell(int x1, int y1, int x2, int y2) {
+        return Math.floorDiv(x1, cellSize) == Math.floorDiv(x2, cellSize)
+                && Math.floorDiv(y1, cellSize) == Math.floorDiv(y2, cellSize);
+    }
+
+    /**
+     * Collects, in ascending order, the indices greater than {@code after} of all entities in the 3x3 cells
+     * around (x, y). Every entity closer than one cell size to (x, y) is included; callers check exact distances.
+     * Concurrent queries are safe as long as nothing modifies the grid, since all scratch state lives in {@code out}.
+     */
+    public void query(int x, int y, int after, Neighbors out) {
+        out.count = 0;
+        int cellX = Math.floorDiv(x, cellSize);
+        int cellY = Math.floorDiv(y, cellSize);
+        int[] visited = out.visitedBuckets;
+        int visitedCount = 0;
+
+        for (int cy = cellY - 1; cy <= cellY + 1; cy++) {
+            for (int cx = cellX - 1; cx <= cellX + 1; cx++) {
+                int bucket = hash(cx, cy);
+                if (contains(visited, visitedCount, bucket)) {
+                    continue; // Two cells hashed to the same bucket
+                }
+                visited[visitedCount++] = bucket;
+                for (int i = heads[bucket]; i != EMPTY; i = next[i]) {
+                    if (i > after) {
+                        out.add(i);
+                    }
+                }
+            }
+        }
+
+        // Insertion sort; neighbour lists are short
+        int[] indices = out.indices;
+        for (int i = 1; i < out.count; i++) {
+            int value = indices[i];
+            int j = i - 1;
+            while (j >= 0 && indices[j] > value) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = value;
+        }
+    }
+
+    /**
+     * Whether any entity is closer than radius to (x, y).
+     */
+    public boolean anyWithin(int x, int y, int radius) {
+        int minX = Math.floorDiv(x - radius, cellSize);
+        int maxX = Math.floorDiv(x + radius, cellSize);
+        int minY = Math.floorDiv(y - radius, cellSize);
+        int maxY = Math.floorDiv(y + radius, cellSize);
+        long radiusSquared = (long) radius * radius;
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int i = heads[hash(cx, cy)]; i != EMPTY; i = next[i]) {
+                    long dx = xs[i] - x;
+                    long dy = ys[i] - y;
+                    if (dx * dx + dy * dy < radiusSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any entity sits exactly at (x, y).
+     */
+    public boolean containsPosition(int x, int y) {
+        for (int i = heads[bucket(x, y)]; i != EMPTY; i = next[i]) {
+            if (xs[i] == x && ys[i] == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int bucket(int x, int y) {
+        return hash(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize));
+    }
+
+    private int hash(int cellX, int cellY) {
+        return ((cellX * 73856093) ^ (cellY * 19349663)) & mask;
+    }
+
+    private void link(int index, int bucket) {
+        int head = heads[bucket];
+        next[index] = head;
+        prev[index] = EMPTY;
+        if (head != EMPTY) {
+            prev[head] = index;
+        }
+        heads[bucket] = index;
+        bucketOf[index] = bucket;
+    }
+
+    private void unlink(int index) {
+        int before = prev[index];
+        int after = next[index];
+        if (before != EMPTY) {
+            next[before] = after;
+        } else {
+            heads[bucketOf[index]] = after;
+        }
+        if (after != EMPTY) {
+            prev[after] = before;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > next.length) {
+            int newLength = Math.max(capacity, next.length * 2);
+            next = Arrays.copyOf(next, newLength);
+            prev = Arrays.copyOf(prev, newLength);
+            bucketOf = Arrays.copyOf(bucketOf, newLength);
+            xs = Arrays.copyOf(xs, newLength);
+            ys = Arrays.copyOf(ys, newLength);
+        }
+    }
+
+    private void resize(int buckets) {
+        heads = new int[buckets];
+        mask = buckets - 1;
+        Arrays.fill(heads, EMPTY);
+        for (int i = 0; i < size; i++) {
+            link(i, bucket(xs[i], ys[i]));
+        }
+    }
+}
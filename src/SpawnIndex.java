@@ -0,0 +1,296 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * SpawnIndex keeps the set of cells an entity may spawn on: open tiles inside the spawn area (the level's
+ * spawn zones, or everything inside the outer wall) within the chunks kept resident around the player.
+ * The set is a bitset per chunk of that window plus a Fenwick tree over the number of cells per chunk, so
+ * a uniformly random cell is found in O(log chunks) and a wall change is an O(log chunks) update. When the
+ * player moves into another chunk only the chunks entering the window are read, so the index never
+ * touches the rest of a large map, and its memory depends on the window, not on the map size.
+ * The window is a function of the player's position alone, so rewinds and replays spawn the same way.
+ * Conditions that change every tick, such as the distance to the player or other enemies, are checked by
+ * the caller's CellTest on a bounded number of random candidates; if all of them fail, the cells are
+ * scanned once, so a pick always ends and reports -1 when no cell passes.
+ */
+public class SpawnIndex {
+    private static final int MAX_ATTEMPTS = 64; // Random candidates before scanning every cell
+
+    /**
+     * Decides whether a cell is usable right now.
+     */
+    public interface CellTest {
+        boolean accept(int col, int row);
+    }
+
+    private final int radius; // Chunks indexed on each side of the player's chunk
+    private TileMap map;
+    private int cols;
+    private int chunkCols;
+    private int chunkRows;
+    private int[] zones = new int[0]; // col, row, width, height per zone; empty for the map's interior
+
+    // Window of indexed chunks, clipped to the map; slots are row-major, i.e. in chunk index order
+    private int centerX = -1;
+    private int centerY = -1;
+    private int fromX;
+    private int fromY;
+    private int width;
+    private int slotCount;
+    private long[][] slots; // One bit per spawnable tile of the slot's chunk, TileMap bit layout
+    private long[][] spareSlots; // Empty while not moving the window
+    private final int[] tree; // Fenwick tree of cells per slot, 1-based
+    private int total;
+    private final long[] scratch = new long[TileMap.WORDS_PER_CHUNK];
+    private long attempts; // Candidates tested so far, for profiling
+
+    /**
+     * @param radius Chunks indexed around the player's chunk in every direction
+     */
+    public SpawnIndex(int radius) {
+        this.radius = radius;
+        int side = 2 * radius + 1;
+        slots = new long[side * side][];
+        spareSlots = new long[side * side][];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new long[TileMap.WORDS_PER_CHUNK];
+        }
+        tree = new int[slots.length + 1];
+    }
+
+    /**
+     * Switches to another map and spawn area; nothing is indexed until the next moveTo().
+     */
+    public void rebuild(TileMap map, int[] zones) {
+        this.map = map;
+        cols = map.getCols();
+        chunkCols = (cols + TileMap.CHUNK_SIZE - 1) >> TileMap.CHUNK_SHIFT;
+        chunkRows = (map.getRows() + TileMap.CHUNK_SIZE - 1) >> TileMap.CHUNK_SHIFT;
+        this.zones = zones.length > 0 ? zones : new int[]{1, 1, cols - 2, map.getRows() - 2};
+        centerX = -1;
+        centerY = -1;
+        slotCount = 0;
+        width = 0;
+        Arrays.fill(tree, 0);
+        total = 0;
+    }
+
+    /**
+     * Centres the window on the chunk of the tile. Chunks that stay in the window keep their bits, the
+     * others are read from the map.
+     */
+    public void moveTo(int col, int row) {
+        int chunkX = Math.max(0, Math.min(chunkCols - 1, col >> TileMap.CHUNK_SHIFT));
+        int chunkY = Math.max(0, Math.min(chunkRows - 1, row >> TileMap.CHUNK_SHIFT));
+        if (chunkX == centerX && chunkY == centerY) {
+            return;
+        }
+        int oldFromX = fromX;
+        int oldFromY = fromY;
+        int oldWidth = width;
+        int oldCount = slotCount;
+        long[][] old = slots;
+        slots = spareSlots;
+        spareSlots = old;
+
+        centerX = chunkX;
+        centerY = chunkY;
+        fromX = Math.max(0, chunkX - radius);
+        fromY = Math.max(0, chunkY - radius);
+        width = Math.min(chunkCols, chunkX + radius + 1) - fromX;
+        int height = Math.min(chunkRows, chunkY + radius + 1) - fromY;
+        slotCount = width * height;
+
+        // Chunks in both windows keep their arrays, the chunks entering take the arrays of those leaving
+        for (int slot = 0; slot < slotCount; slot++) {
+            int x = fromX + slot % width - oldFromX;
+            int y = fromY + slot / width - oldFromY;
+            if (x >= 0 && x < oldWidth && y >= 0 && y * oldWidth + x < oldCount) {
+                slots[slot] = old[y * oldWidth + x];
+                old[y * oldWidth + x] = null;
+            }
+        }
+        int unused = 0;
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (slots[slot] == null) {
+                while (old[unused] == null) {
+                    unused++;
+                }
+                slots[slot] = old[unused];
+                old[unused] = null;
+                if (slot < slotCount) {
+                    indexChunk(slot);
+                }
+            }
+        }
+        Arrays.fill(tree, 0);
+        total = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int count = 0;
+            for (long word : slots[slot]) {
+                count += Long.bitCount(word);
+            }
+            add(slot, count);
+        }
+    }
+
+    /**
+     * Updates a cell after its tile changed; cells outside the window are read when it reaches them.
+     */
+    public void update(int col, int row, boolean solid) {
+        int slot = slotOf(col >> TileMap.CHUNK_SHIFT, row >> TileMap.CHUNK_SHIFT);
+        if (slot < 0) {
+            return;
+        }
+        boolean spawnable = !solid && inZone(col, row);
+        int bit = (row & (TileMap.CHUNK_SIZE - 1)) * TileMap.CHUNK_SIZE + (col & (TileMap.CHUNK_SIZE - 1));
+        long[] cells = slots[slot];
+        boolean was = (cells[bit >> 6] & (1L << bit)) != 0;
+        if (spawnable != was) {
+            cells[bit >> 6] ^= 1L << bit;
+            add(slot, spawnable ? 1 : -1);
+        }
+    }
+
+    /**
+     * Number of spawnable cells, ignoring the CellTest.
+     */
+    public int size() {
+        return total;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns a random spawnable cell (row * cols + col) that passes the test, or -1 if there is none.
+     */
+    public int pick(Random random, CellTest test) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && total > 0; attempt++) {
+            int cell = cellAt(random.nextInt(total));
+            attempts++;
+            if (test.accept(cell % cols, cell / cols)) {
+                return cell;
+            }
+        }
+
+        // Crowded: choose uniformly among all cells that pass (reservoir sampling)
+        int chosen = -1;
+        int passed = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            for (int w = 0; w < TileMap.WORDS_PER_CHUNK; w++) {
+                long bits = slots[slot][w];
+                while (bits != 0) {
+                    int cell = cellOf(slot, w * 64 + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                    attempts++;
+                    if (test.accept(cell % cols, cell / cols) && random.nextInt(++passed) == 0) {
+                        chosen = cell;
+                    }
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * The cell with the given rank among all spawnable cells.
+     */
+    private int cellAt(int rank) {
+        // Descend the Fenwick tree to the slot holding the rank
+        int slot = 0;
+        for (int step = Integer.highestOneBit(slotCount); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next <= slotCount && tree[next] <= rank) {
+                slot = next;
+                rank -= tree[next];
+            }
+        }
+        // Select the rank-th set bit of the chunk
+        long[] cells = slots[slot];
+        for (int w = 0; ; w++) {
+            long bits = cells[w];
+            int count = Long.bitCount(bits);
+            if (rank < count) {
+                for (int i = 0; i < rank; i++) {
+                    bits &= bits - 1;
+                }
+                return cellOf(slot, w * 64 + Long.numberOfTrailingZeros(bits));
+            }
+            rank -= count;
+        }
+    }
+
+    private int cellOf(int slot, int bit) {
+        int col = (fromX + slot % width << TileMap.CHUNK_SHIFT) + (bit & (TileMap.CHUNK_SIZE - 1));
+        int row = (fromY + slot / width << TileMap.CHUNK_SHIFT) + (bit >> TileMap.CHUNK_SHIFT);
+        return row * cols + col;
+    }
+
+    /**
+     * The window slot of a chunk, or -1 if the chunk is outside the window.
+     */
+    private int slotOf(int chunkX, int chunkY) {
+        int x = chunkX - fromX;
+        int y = chunkY - fromY;
+        if (width == 0 || x < 0 || x >= width || y < 0 || y * width + x >= slotCount) {
+            return -1;
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Fills a slot with the open zone cells of its chunk; walls are never spawnable.
+     */
+    private void indexChunk(int slot) {
+        int chunkX = fromX + slot % width;
+        int chunkY = fromY + slot / width;
+        long[] cells = slots[slot];
+        Arrays.fill(cells, 0L);
+        addZones(chunkX, chunkY, cells);
+        map.readChunk(chunkX, chunkY, scratch);
+        for (int w = 0; w < TileMap.WORDS_PER_CHUNK; w++) {
+            cells[w] &= ~scratch[w];
+        }
+    }
+
+    /**
+     * Sets the bits of all zone cells inside the chunk, one row span at a time.
+     */
+    private void addZones(int chunkX, int chunkY, long[] cells) {
+        int chunkCol = chunkX << TileMap.CHUNK_SHIFT;
+        int chunkRow = chunkY << TileMap.CHUNK_SHIFT;
+        for (int z = 0; z < zones.length; z += 4) {
+            int fromCol = Math.max(zones[z], chunkCol);
+            int toCol = Math.min(zones[z] + zones[z + 2], chunkCol + TileMap.CHUNK_SIZE);
+            int fromRow = Math.max(zones[z + 1], chunkRow);
+            int toRow = Math.min(zones[z + 1] + zones[z + 3], chunkRow + TileMap.CHUNK_SIZE);
+            if (fromCol >= toCol || fromRow >= toRow) {
+                continue;
+            }
+            long span = ((1L << (toCol - fromCol)) - 1) << (fromCol - chunkCol);
+            for (int row = fromRow - chunkRow; row < toRow - chunkRow; row++) {
+                int bit = row * TileMap.CHUNK_SIZE;
+                cells[bit >> 6] |= span << (bit & 63);
+            }
+        }
+    }
+
+    private boolean inZone(int col, int row) {
+        for (int z = 0; z < zones.length; z += 4) {
+            if (col >= zones[z] && col < zones[z] + zones[z + 2]
+                    && row >= zones[z + 1] && row < zones[z + 1] + zones[z + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(int slot, int delta) {
+        total += delta;
+        for (int i = slot + 1; i <= slotCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * SpriteCache renders the look of each entity kind once into an image compatible with the screen, so
+ * drawing an entity is a single drawImage instead of several shape fills and Color/Paint allocations.
+ * Images are rebuilt only when the graphics configuration changes.
+ */
+public class SpriteCache {
+    static final int PLAYER = 0;
+    static final int ENEMY = 1;
+    static final int BOSS = 2;
+    private static final int SPRITE_COUNT = 3;
+
+    private static final Color BOSS_BODY = new Color(0, 0, 0); // Black for part of the boss body
+    private static final Color BOSS_TOP = new Color(50, 0, 50); // Dark purple for the top half
+
+    private final Image[] sprites = new Image[SPRITE_COUNT];
+    private final int tileSize;
+    private GraphicsConfiguration configuration; // Configuration the sprites were created for
+
+    public SpriteCache(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Returns the sprite for the given kind, creating it for the graphics' device on first use.
+     */
+    public Image get(int sprite, Graphics2D g) {
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (gc != configuration) {
+            configuration = gc;
+            Arrays.fill(sprites, null);
+        }
+        Image image = sprites[sprite];
+        if (image == null) {
+            image = render(sprite, gc);
+            sprites[sprite] = image;
+        }
+        return image;
+    }
+
+    private Image render(int sprite, GraphicsConfiguration gc) {
+        // The old per-frame drop shadow used a gradient that was transparent at both ends, so it drew
+        // nothing; player and enemy sprites are plain opaque squares.
+        switch (sprite) {
+            case PLAYER:
+                return renderSquare(gc, Color.BLACK);
+            case ENEMY:
+                return renderSquare(gc, Color.darkGray);
+            case BOSS:
+                return renderBoss(gc);
+            default:
+                throw new IllegalArgumentException("Unknown sprite: " + sprite);
+        }
+    }
+
+    private Image renderSquare(GraphicsConfiguration gc, Color color) {
+        BufferedImage image = createImage(gc, tileSize, tileSize, Transparency.OPAQUE);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(color);
+            g.fillRect(0, 0, tileSize, tileSize);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private Image renderBoss(GraphicsConfiguration gc) {
+        int bossSize = (int) (tileSize * 1.5);
+        // +1 so the outline's right and bottom edges fit
+        BufferedImage image = createImage(gc, bossSize + 1, bossSize + 1, Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+        try {
+            // Draw the boss body with black and dark purple colors
+            g.setColor(BOSS_BODY);
+            g.fillRoundRect(0, 0, bossSize, bossSize, 50, 50);
+            g.setColor(BOSS_TOP);
+            g.fillRoundRect(0, 0, bossSize, bossSize / 2, 50, 50);
+
+            // Draw glowing white eyes for intimidation
+            g.setColor(Color.white);
+            g.fillOval((int) (bossSize * 0.3), (int) (bossSize * 0.4), bossSize / 6, bossSize / 6);
+            g.fillOval((int) (bossSize * 0.6), (int) (bossSize * 0.4), bossSize / 6, bossSize / 6);
+
+            // Add a black outline to highlight the boss
+            g.setColor(Color.BLACK);
+            g.drawRoundRect(0, 0, bossSize, bossSize, 50, 50);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage createImage(GraphicsConfiguration gc, int width, int height, int transparency) {
+        if (gc != null && !GraphicsEnvironment.isHeadless()) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return new BufferedImage(width, height, type);
+    }
+}
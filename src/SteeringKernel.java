@@ -0,0 +1,127 @@
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * SteeringKernel computes the circling move of a whole range of enemies at once: it advances each
+ * enemy's angle with its own random stream, finds its target point on the circle around the player and
+ * writes the normalized, slowed-down step into desiredX/desiredY.
+ * The work is split into fixed-size blocks and straight-line array stages using a polynomial sine/cosine.
+ * This scalar version is the reference; C2 does not vectorize its random stream or rounding, so builds
+ * with -Pvector add VectorSteeringKernel, which runs the same arithmetic on jdk.incubator.vector lanes
+ * and is used with -Dgame.vectorSteering=true. Both produce bit-identical results, so recordings replay
+ * the same with either. SteeringKernelTest checks both against the exact Math-based steering.
+ */
+public class SteeringKernel {
+    static final int BLOCK = 256;
+    private static final Supplier<SteeringKernel> FACTORY = factory();
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double INV_TWO_PI = 1 / TWO_PI;
+    private static final double HALF_PI = Math.PI / 2;
+    private static final double B = 4 / Math.PI;
+    private static final double C = -4 / (Math.PI * Math.PI);
+    private static final double P = 0.225;
+
+    // Per-block scratch lanes
+    private final double[] sin = new double[BLOCK];
+    private final double[] cos = new double[BLOCK];
+    private final double[] deltaX = new double[BLOCK];
+    private final double[] deltaY = new double[BLOCK];
+
+    /**
+     * A kernel for one thread: the vector kernel if it was requested and can be loaded, else this one.
+     */
+    static SteeringKernel create() {
+        return FACTORY.get();
+    }
+
+    private static Supplier<SteeringKernel> factory() {
+        if (!Boolean.getBoolean("game.vectorSteering")) {
+            return SteeringKernel::new;
+        }
+        try {
+            Constructor<? extends SteeringKernel> constructor = Class.forName("VectorSteeringKernel")
+                    .asSubclass(SteeringKernel.class).getDeclaredConstructor();
+            constructor.newInstance(); // Fails here if the incubator module was not added
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Vector steering unavailable, using the scalar kernel: " + e
+                    + " (build with -Pvector and run with --add-modules jdk.incubator.vector)");
+            return SteeringKernel::new;
+        }
+    }
+
+    /**
+     * Whether this kernel runs on vector lanes.
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Steers enemies [from, to) of the store around (playerX, playerY).
+     */
+    public void steer(EntityStore store, int from, int to, int playerX, int playerY,
+                      double circleRadius, double slowDownFactor) {
+        for (int start = from; start < to; start += BLOCK) {
+            steerBlock(store, start, Math.min(BLOCK, to - start), playerX, playerY, circleRadius, slowDownFactor);
+        }
+    }
+
+    private void steerBlock(EntityStore store, int start, int count, int playerX, int playerY,
+                            double circleRadius, double slowDownFactor) {
+        int[] xs = store.x;
+        int[] ys = store.y;
+        int[] speeds = store.speed;
+        double[] angles = store.angle;
+        long[] rng = store.rng;
+        int[] desiredX = store.desiredX;
+        int[] desiredY = store.desiredY;
+
+        // Randomize angles slightly, one random stream per enemy
+        for (int k = 0; k < count; k++) {
+            int i = start + k;
+            long state = FastRandom.next(rng[i]);
+            rng[i] = state;
+            angles[i] += FastRandom.toDouble(state) * (Math.PI / 8) - Math.PI / 16;
+        }
+
+        // Sine and cosine of the new angles
+        for (int k = 0; k < count; k++) {
+            double angle = angles[start + k];
+            sin[k] = fastSin(angle);
+            cos[k] = fastSin(angle + HALF_PI);
+        }
+
+        // Direction from each enemy to its point on the circle around the player
+        for (int k = 0; k < count; k++) {
+            int i = start + k;
+            deltaX[k] = (int) (playerX + circleRadius * cos[k]) - xs[i];
+            deltaY[k] = (int) (playerY + circleRadius * sin[k]) - ys[i];
+        }
+
+        // Normalized, slowed-down step; enemies already on their target stay put
+        for (int k = 0; k < count; k++) {
+            int i = start + k;
+            double distance = Math.sqrt(deltaX[k] * deltaX[k] + deltaY[k] * deltaY[k]);
+            double scale = distance > 0 ? speeds[i] * slowDownFactor / distance : 0;
+            desiredX[i] = (int) (xs[i] + deltaX[k] * scale);
+            desiredY[i] = (int) (ys[i] + deltaY[k] * scale);
+        }
+    }
+
+    /**
+     * Branch-free sine approximation (parabola with one refinement step), absolute error about 0.001.
+     */
+    static double fastSin(double x) {
+        x -= TWO_PI * Math.rint(x * INV_TWO_PI); // Reduce to [-pi, pi]
+        double y = B * x + C * x * Math.abs(x);
+        return P * (y * Math.abs(y) - y) + y;
+    }
+}
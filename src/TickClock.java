@@ -0,0 +1,41 @@
+/**
+ * TickClock is the simulation's notion of time. It only advances when the world is stepped,
+ * so the same game rules can run in real time, slower, or many times faster than wall time.
+ */
+public class TickClock {
+    private final int ticksPerSecond;
+    private long tick;
+
+    public TickClock(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive");
+        }
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    public void advance() {
+        tick++;
+    }
+
+    /**
+     * Moves the clock to another tick, e.g. when a world snapshot is restored.
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Simulated milliseconds since the clock was created.
+     */
+    public long millis() {
+        return tick * 1000 / ticksPerSecond;
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * TileMap stores the world's obstacle tiles in chunks of CHUNK_SIZE x CHUNK_SIZE tiles, one bit per tile,
+ * so a map of millions of tiles costs an eighth of a byte per resident tile instead of an int per tile.
+ * Chunks are produced on demand by a ChunkSource and held in a chunk index; trim() drops the chunks far
+ * from a point of interest (the player) again, except chunks that were edited.
+ * Reads may happen from any thread (parallel enemy updates); edits and trimming happen on the game thread.
+ * The renderer never reads the map itself, only the MapWindow copies the game thread takes of it.
+ */
+public class TileMap {
+    static final int CHUNK_SHIFT = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 32 tiles
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int WORDS_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE / 64;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * Provides the initial tiles of a chunk, e.g. generated or read from a level file.
+     */
+    public interface ChunkSource {
+        /**
+         * Sets the bit (row * CHUNK_SIZE + col) of the words for every obstacle tile of the chunk.
+         */
+        void fill(int chunkX, int chunkY, long[] words);
+    }
+
+    /**
+     * One resident chunk.
+     */
+    static final class Chunk {
+        final long[] words = new long[WORDS_PER_CHUNK];
+        int version; // Incremented on every edit
+        boolean edited; // Edited chunks are never trimmed, their tiles exist nowhere else
+    }
+
+    private final int cols;
+    private final int rows;
+    private final int chunkCols;
+    private final int chunkRows;
+    private final ChunkSource source;
+    private final AtomicReferenceArray<Chunk> chunks; // Chunk index, null for chunks that are not resident
+    final int id = NEXT_ID.getAndIncrement(); // Tells maps apart in caches of rendered chunks
+
+    public TileMap(int cols, int rows, ChunkSource source) {
+        this.cols = cols;
+        this.rows = rows;
+        this.chunkCols = (cols + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunkRows = (rows + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.source = source;
+        this.chunks = new AtomicReferenceArray<>(chunkCols * chunkRows);
+    }
+
+    /**
+     * A map that is open except for a one-tile wall along its edges.
+     */
+    public static TileMap withBorderWalls(int cols, int rows) {
+        return new TileMap(cols, rows, (chunkX, chunkY, words) -> {
+            for (int r = 0; r < CHUNK_SIZE; r++) {
+                int row = (chunkY << CHUNK_SHIFT) + r;
+                for (int c = 0; c < CHUNK_SIZE; c++) {
+                    int col = (chunkX << CHUNK_SHIFT) + c;
+                    if (col < cols && row < rows && (row == 0 || row == rows - 1 || col == 0 || col == cols - 1)) {
+                        int bit = r * CHUNK_SIZE + c;
+                        words[bit >> 6] |= 1L << bit;
+                    }
+                }
+            }
+        });
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Whether the tile is an obstacle; tiles outside the map are not.
+     */
+    public boolean isSolid(int col, int row) {
+        if (col < 0 || row < 0 || col >= cols || row >= rows) {
+            return false;
+        }
+        Chunk chunk = chunk(col >> CHUNK_SHIFT, row >> CHUNK_SHIFT);
+        int bit = (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK);
+        return (chunk.words[bit >> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Tile value as in the old int map: 1 for an obstacle, 0 for open space or outside the map.
+     */
+    public int getTile(int col, int row) {
+        return isSolid(col, row) ? 1 : 0;
+    }
+
+    /**
+     * Changes a tile (1 = obstacle, 0 = open space); returns true if it changed.
+     */
+    public boolean setTile(int col, int row, int value) {
+        if (col < 0 || row < 0 || col >= cols || row >= rows || isSolid(col, row) == (value == 1)) {
+            return false;
+        }
+        Chunk chunk = chunk(col >> CHUNK_SHIFT, row >> CHUNK_SHIFT);
+        int bit = (row & CHUNK_MASK) * CHUNK_SIZE + (col & CHUNK_MASK);
+        chunk.words[bit >> 6] ^= 1L << bit;
+        chunk.edited = true;
+        chunk.version++;
+        return true;
+    }
+
+    /**
+     * Copies the tile bits of a chunk into words without making the chunk resident, e.g. to scan the whole
+     * map once. Returns the chunk's version, which counts its edits and is 0 for chunks that are not resident.
+     */
+    public int readChunk(int chunkX, int chunkY, long[] words) {
+        Chunk chunk = chunks.get(chunkY * chunkCols + chunkX);
+        if (chunk != null) {
+            System.arraycopy(chunk.words, 0, words, 0, WORDS_PER_CHUNK);
+            return chunk.version;
+        }
+        Arrays.fill(words, 0, WORDS_PER_CHUNK, 0L);
+        source.fill(chunkX, chunkY, words);
+        return 0;
+    }
+
+    /**
+     * Drops resident chunks more than radius chunks away from the tile, unless they were edited.
+     */
+    public void trim(int col, int row, int radius) {
+        int centerX = col >> CHUNK_SHIFT;
+        int centerY = row >> CHUNK_SHIFT;
+        for (int cy = 0; cy < chunkRows; cy++) {
+            for (int cx = 0; cx < chunkCols; cx++) {
+                if (Math.abs(cx - centerX) > radius || Math.abs(cy - centerY) > radius) {
+                    int index = cy * chunkCols + cx;
+                    Chunk chunk = chunks.get(index);
+                    if (chunk != null && !chunk.edited) {
+                        chunks.set(index, null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of chunks currently held in memory.
+     */
+    public int getResidentChunkCount() {
+        int count = 0;
+        for (int i = 0; i < chunks.length(); i++) {
+            if (chunks.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Chunk chunk(int chunkX, int chunkY) {
+        int index = chunkY * chunkCols + chunkX;
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = load(chunkX, chunkY, index);
+        }
+        return chunk;
+    }
+
+    /**
+     * Fills a chunk from the source; if another thread loaded it at the same time, its copy wins.
+     */
+    private Chunk load(int chunkX, int chunkY, int index) {
+        Chunk chunk = new Chunk();
+        source.fill(chunkX, chunkY, chunk.words);
+        if (chunks.compareAndSet(index, null, chunk)) {
+            return chunk;
+        }
+        return chunks.get(index);
+    }
+}
@@ -0,0 +1,124 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * TileMapRenderer draws the tile map in blocks of BLOCK_TILES x BLOCK_TILES tiles. Each block is rendered
+ * once into an image compatible with the screen (which Java2D keeps accelerated) and then copied while it
+ * is visible, so a frame costs a handful of drawImage calls however large the world is. Only blocks near
+ * the camera are cached: a fixed number of slots is reused least-recently-drawn first, and a block is
+ * rendered again when the version of its map chunk changes. It draws from the MapWindow of a RenderSnapshot,
+ * never from the world's TileMap.
+ */
+public class TileMapRenderer {
+    private static final int BLOCK_TILES = 8; // Divides TileMap.CHUNK_SIZE, so a block lies within one chunk
+    private static final int CACHE_SLOTS = 36; // Enough for the visible blocks plus a ring around them
+
+    private final int tileSize;
+    private final int blockSize; // Block size in pixels
+    private GraphicsConfiguration configuration; // Configuration the cached images were created for
+
+    // Cache slots; slotBlock is -1 for an empty slot
+    private final BufferedImage[] slotImage = new BufferedImage[CACHE_SLOTS];
+    private final long[] slotBlock = new long[CACHE_SLOTS]; // Block row << 32 | block column
+    private final int[] slotVersion = new int[CACHE_SLOTS]; // Chunk version the image shows
+    private final long[] slotLastDrawn = new long[CACHE_SLOTS]; // Frame the slot was last drawn in
+    private int cachedMapId = -1; // Map the slots belong to
+    private long frame;
+
+    public TileMapRenderer(int tileSize) {
+        this.tileSize = tileSize;
+        this.blockSize = BLOCK_TILES * tileSize;
+        Arrays.fill(slotBlock, -1);
+    }
+
+    /**
+     * Draws the visible part of the map.
+     */
+    public void draw(Graphics2D g, MapWindow map, int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (gc != configuration || map.getMapId() != cachedMapId) {
+            configuration = gc;
+            cachedMapId = map.getMapId();
+            Arrays.fill(slotImage, null);
+            Arrays.fill(slotBlock, -1);
+        }
+        frame++;
+
+        // Visible blocks, clipped to the map
+        int blockCols = (map.getCols() + BLOCK_TILES - 1) / BLOCK_TILES;
+        int blockRows = (map.getRows() + BLOCK_TILES - 1) / BLOCK_TILES;
+        int firstCol = Math.max(0, Math.floorDiv(cameraX, blockSize));
+        int firstRow = Math.max(0, Math.floorDiv(cameraY, blockSize));
+        int lastCol = Math.min(blockCols - 1, Math.floorDiv(cameraX + viewWidth - 1, blockSize));
+        int lastRow = Math.min(blockRows - 1, Math.floorDiv(cameraY + viewHeight - 1, blockSize));
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                BufferedImage image = block(map, col, row);
+                g.drawImage(image, col * blockSize - cameraX, row * blockSize - cameraY, null);
+            }
+        }
+    }
+
+    /**
+     * Returns the image of a block, rendering it into a cache slot if it is missing or out of date.
+     */
+    private BufferedImage block(MapWindow map, int col, int row) {
+        long key = (long) row << 32 | col;
+        int shift = TileMap.CHUNK_SHIFT;
+        int version = map.getChunkVersion(col * BLOCK_TILES >> shift, row * BLOCK_TILES >> shift);
+
+        int slot = -1;
+        for (int i = 0; i < CACHE_SLOTS; i++) {
+            if (slotBlock[i] == key) {
+                slot = i;
+                break;
+            }
+            if (slot < 0 || slotLastDrawn[i] < slotLastDrawn[slot]) {
+                slot = i; // Least recently drawn so far, reused if the block is not cached
+            }
+        }
+        if (slotBlock[slot] != key || slotVersion[slot] != version) {
+            if (slotImage[slot] == null) {
+                slotImage[slot] = createImage(configuration, blockSize + 1, blockSize + 1); // +1 for the borders
+            }
+            render(slotImage[slot].createGraphics(), map, col * BLOCK_TILES, row * BLOCK_TILES);
+            slotBlock[slot] = key;
+            slotVersion[slot] = version;
+        }
+        slotLastDrawn[slot] = frame;
+        return slotImage[slot];
+    }
+
+    /**
+     * Draws every tile of the block, white for open space and grey for walls, with black borders for contrast.
+     */
+    private void render(Graphics2D g, MapWindow map, int firstCol, int firstRow) {
+        try {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, blockSize + 1, blockSize + 1);
+            int rows = Math.min(BLOCK_TILES, map.getRows() - firstRow);
+            int cols = Math.min(BLOCK_TILES, map.getCols() - firstCol);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int x = col * tileSize;
+                    int y = row * tileSize;
+                    g.setColor(map.isSolid(firstCol + col, firstRow + row) ? Color.GRAY : Color.WHITE);
+                    g.fillRect(x, y, tileSize, tileSize);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(x, y, tileSize, tileSize);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static BufferedImage createImage(GraphicsConfiguration gc, int width, int height) {
+        if (gc != null && !GraphicsEnvironment.isHeadless()) {
+            return gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
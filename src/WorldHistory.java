@@ -0,0 +1,131 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * WorldHistory keeps a GameWorld's recent past: a checkpoint of its complete state every interval ticks,
+ * serialized into a ring of byte buffers that are reused, and the input of every tick since the oldest
+ * checkpoint. restore() returns to a checkpoint instantly; rewindTo() reaches any tick in between by
+ * restoring the checkpoint before it and re-simulating the recorded input, which gives exactly the state the
+ * world had because the simulation is deterministic. A buffer only grows when the world has grown past the
+ * largest one it held, so recording does not allocate during play.
+ */
+public class WorldHistory {
+    private static final int RESTARTED = 1 << 31; // Input flag: a retry restarted the run before the tick
+
+    private final int interval; // Ticks between checkpoints
+    private final ByteBuffer[] checkpoints;
+    private final long[] checkpointTicks; // -1 for empty slots
+    private int next; // Slot the next checkpoint is written to
+    private final int[] inputs; // Buttons, plus RESTARTED, of each tick by tick modulo length
+    private boolean replaying; // Re-simulating: the input is already recorded
+
+    /**
+     * @param checkpoints Number of checkpoints kept; the history covers checkpoints * interval ticks
+     * @param interval    Ticks between checkpoints
+     */
+    public WorldHistory(int checkpoints, int interval) {
+        if (checkpoints <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint count and interval must be positive");
+        }
+        this.interval = interval;
+        this.checkpoints = new ByteBuffer[checkpoints];
+        this.checkpointTicks = new long[checkpoints];
+        Arrays.fill(checkpointTicks, -1);
+        this.inputs = new int[(checkpoints + 1) * interval];
+    }
+
+    /**
+     * Records the buttons the world applies on the given tick; called before the tick.
+     */
+    void recordInput(long tick, int buttons, boolean restarted) {
+        if (!replaying) {
+            inputs[(int) (tick % inputs.length)] = buttons | (restarted ? RESTARTED : 0);
+        }
+    }
+
+    /**
+     * Captures a checkpoint if the world is at a checkpoint tick; called after every tick that did not end
+     * the game.
+     */
+    void recordTick(GameWorld world) {
+        long tick = world.getClock().getTick();
+        if (tick % interval != 0) {
+            return;
+        }
+        int size = world.stateBytes();
+        ByteBuffer buffer = checkpoints[next];
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size + size / 2); // Room for the world to grow before the next one
+            checkpoints[next] = buffer;
+        }
+        buffer.clear();
+        world.writeState(buffer);
+        buffer.flip();
+        checkpointTicks[next] = tick;
+        next = (next + 1) % checkpoints.length;
+    }
+
+    /**
+     * Restores the newest checkpoint at or before the tick; later checkpoints are dropped, since the world
+     * may take another course from there.
+     *
+     * @return false if there is no such checkpoint
+     */
+    boolean restore(GameWorld world, long tick) {
+        int slot = find(tick);
+        if (slot < 0) {
+            return false;
+        }
+        ByteBuffer buffer = checkpoints[slot];
+        buffer.rewind();
+        world.readState(buffer);
+        for (int i = 0; i < checkpoints.length; i++) {
+            if (checkpointTicks[i] > checkpointTicks[slot]) {
+                checkpointTicks[i] = -1;
+            }
+        }
+        next = (slot + 1) % checkpoints.length;
+        return true;
+    }
+
+    /**
+     * Restores the newest checkpoint at or before the tick and re-simulates the recorded input up to it.
+     *
+     * @return false if the tick is not covered, i.e. before the oldest checkpoint or after the world's tick
+     */
+    boolean rewindTo(GameWorld world, long tick) {
+        if (tick > world.getClock().getTick()) {
+            return false;
+        }
+        int slot = find(tick);
+        if (slot < 0 || tick - checkpointTicks[slot] >= inputs.length) {
+            return false;
+        }
+        restore(world, tick);
+        replaying = true;
+        try {
+            for (long t = world.getClock().getTick() + 1; t <= tick; t++) {
+                int input = inputs[(int) (t % inputs.length)];
+                if ((input & RESTARTED) != 0) {
+                    world.restart();
+                }
+                world.setButtons(input & ~RESTARTED);
+                world.step(1);
+            }
+        } finally {
+            replaying = false;
+        }
+        return true;
+    }
+
+    private int find(long tick) {
+        int best = -1;
+        for (int i = 0; i < checkpoints.length; i++) {
+            long checkpoint = checkpointTicks[i];
+            if (checkpoint >= 0 && checkpoint <= tick && (best < 0 || checkpoint > checkpointTicks[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,174 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorSteeringKernel runs SteeringKernel's arithmetic on jdk.incubator.vector lanes: the SplitMix64
+ * streams in long lanes, everything else in double lanes staged through per-block scratch arrays.
+ * Every lane does the same IEEE operations in the same order as the scalar kernel, and rint, the
+ * long-to-double conversion and the truncated target are computed with exact 2^52 tricks, so the
+ * results are bit-identical; the tail of a range that fills no whole vector is left to the scalar kernel.
+ * Each stage is its own small loop so C2 inlines and intrinsifies all of it; one big loop boxes vectors.
+ * Built only with -Pvector, and used with --add-modules jdk.incubator.vector -Dgame.vectorSteering=true.
+ */
+public class VectorSteeringKernel extends SteeringKernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = DOUBLES.withLanes(long.class);
+
+    private static final long GAMMA = 0x9E3779B97F4A7C15L; // FastRandom's constants
+    private static final long MIX1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX2 = 0x94D049BB133111EBL;
+    private static final long TWO_52_BITS = 0x4330000000000000L; // Bits of 2^52
+    private static final double TWO_52 = 0x1.0p52;
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double INV_TWO_PI = 1 / TWO_PI;
+    private static final double HALF_PI = Math.PI / 2;
+    private static final double B = 4 / Math.PI;
+    private static final double C = -4 / (Math.PI * Math.PI);
+    private static final double P = 0.225;
+    private static final double ROUNDING = 0x1.8p52; // Adding and subtracting it rounds to the nearest even
+
+    // Per-block scratch lanes
+    private final long[] bits = new long[BLOCK];
+    private final double[] x = new double[BLOCK];
+    private final double[] y = new double[BLOCK];
+    private final double[] speed = new double[BLOCK];
+    private final double[] sin = new double[BLOCK];
+    private final double[] cos = new double[BLOCK];
+    private final double[] deltaX = new double[BLOCK];
+    private final double[] deltaY = new double[BLOCK];
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    public void steer(EntityStore store, int from, int to, int playerX, int playerY,
+                      double circleRadius, double slowDownFactor) {
+        int end = from + DOUBLES.loopBound(to - from);
+        for (int start = from; start < end; start += BLOCK) {
+            steerBlock(store, start, Math.min(BLOCK, end - start), playerX, playerY, circleRadius, slowDownFactor);
+        }
+        if (end < to) {
+            super.steer(store, end, to, playerX, playerY, circleRadius, slowDownFactor);
+        }
+    }
+
+    private void steerBlock(EntityStore store, int start, int count, int playerX, int playerY,
+                            double circleRadius, double slowDownFactor) {
+        int[] xs = store.x;
+        int[] ys = store.y;
+        int[] speeds = store.speed;
+        for (int k = 0; k < count; k++) {
+            x[k] = xs[start + k];
+            y[k] = ys[start + k];
+            speed[k] = speeds[start + k];
+        }
+
+        nextRandomBits(store.rng, start, count);
+        randomizeAngles(store.angle, start, count);
+        sinLanes(store.angle, start, count, 0, sin);
+        sinLanes(store.angle, start, count, HALF_PI, cos);
+        deltaLanes(cos, x, playerX, circleRadius, count, deltaX);
+        deltaLanes(sin, y, playerY, circleRadius, count, deltaY);
+        step(slowDownFactor, count);
+
+        int[] desiredX = store.desiredX;
+        int[] desiredY = store.desiredY;
+        for (int k = 0; k < count; k++) {
+            desiredX[start + k] = (int) x[k];
+            desiredY[start + k] = (int) y[k];
+        }
+    }
+
+    /**
+     * Advances the random streams and keeps the top 53 bits of each mixed state, as FastRandom.toDouble.
+     */
+    private void nextRandomBits(long[] rng, int start, int count) {
+        for (int k = 0; k < count; k += DOUBLES.length()) {
+            LongVector z = LongVector.fromArray(LONGS, rng, start + k).add(GAMMA);
+            z.intoArray(rng, start + k);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(MIX1);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(MIX2);
+            z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31))
+                    .lanewise(VectorOperators.LSHR, 11).intoArray(bits, k);
+        }
+    }
+
+    /**
+     * Moves each angle by bits * 2^-53 * (pi / 8) - pi / 16, converting the 53 bits in two exact halves.
+     */
+    private void randomizeAngles(double[] angles, int start, int count) {
+        for (int k = 0; k < count; k += DOUBLES.length()) {
+            LongVector random = LongVector.fromArray(LONGS, bits, k);
+            DoubleVector high = exact(random.lanewise(VectorOperators.LSHR, 1));
+            DoubleVector unit = high.mul(2).add(exact(random.and(1L))).mul(0x1.0p-53);
+            DoubleVector.fromArray(DOUBLES, angles, start + k).add(unit.mul(Math.PI / 8).sub(Math.PI / 16))
+                    .intoArray(angles, start + k);
+        }
+    }
+
+    private static void sinLanes(double[] angles, int start, int count, double phase, double[] out) {
+        for (int k = 0; k < count; k += DOUBLES.length()) {
+            fastSin(DoubleVector.fromArray(DOUBLES, angles, start + k).add(phase)).intoArray(out, k);
+        }
+    }
+
+    /**
+     * (int) (player + circleRadius * direction) - position, per lane.
+     */
+    private static void deltaLanes(double[] direction, double[] position, int player, double circleRadius,
+                                   int count, double[] out) {
+        for (int k = 0; k < count; k += DOUBLES.length()) {
+            truncate(DoubleVector.fromArray(DOUBLES, direction, k).mul(circleRadius).add(player))
+                    .sub(DoubleVector.fromArray(DOUBLES, position, k)).intoArray(out, k);
+        }
+    }
+
+    /**
+     * Normalized, slowed-down step added to x/y; enemies on their target stay put.
+     */
+    private void step(double slowDownFactor, int count) {
+        for (int k = 0; k < count; k += DOUBLES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(DOUBLES, deltaX, k);
+            DoubleVector dy = DoubleVector.fromArray(DOUBLES, deltaY, k);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).lanewise(VectorOperators.SQRT);
+            VectorMask<Double> moving = distance.compare(VectorOperators.GT, 0);
+            DoubleVector scale = DoubleVector.zero(DOUBLES).blend(
+                    DoubleVector.fromArray(DOUBLES, speed, k).mul(slowDownFactor).div(distance), moving);
+            DoubleVector.fromArray(DOUBLES, x, k).add(dx.mul(scale)).intoArray(x, k);
+            DoubleVector.fromArray(DOUBLES, y, k).add(dy.mul(scale)).intoArray(y, k);
+        }
+    }
+
+    /**
+     * (double) v for 0 <= v < 2^52, through the bits of 2^52 + v.
+     */
+    private static DoubleVector exact(LongVector v) {
+        return v.or(TWO_52_BITS).reinterpretAsDoubles().sub(TWO_52);
+    }
+
+    /**
+     * Rounds towards zero like an int cast, for magnitudes below 2^51.
+     */
+    private static DoubleVector truncate(DoubleVector v) {
+        DoubleVector magnitude = v.abs();
+        DoubleVector r = magnitude.add(ROUNDING).sub(ROUNDING);
+        r = r.blend(r.sub(1), r.compare(VectorOperators.GT, magnitude)); // Floor of the magnitude
+        return r.blend(r.neg(), v.compare(VectorOperators.LT, 0));
+    }
+
+    /**
+     * SteeringKernel.fastSin per lane.
+     */
+    private static DoubleVector fastSin(DoubleVector x) {
+        DoubleVector turns = x.mul(INV_TWO_PI).add(ROUNDING).sub(ROUNDING);
+        x = x.sub(turns.mul(TWO_PI));
+        DoubleVector y = x.mul(B).add(x.mul(C).mul(x.abs()));
+        return y.mul(y.abs()).sub(y).mul(P).add(y);
+    }
+}